@@ -0,0 +1,33 @@
+package com.kidula.studentdataprocessor.columnar;
+
+import com.kidula.studentdataprocessor.entity.Student;
+
+import java.time.LocalDate;
+
+/**
+ * Inclusive bounds on studentId, score and dob; null leaves a side open. A row group is only read
+ * when its min/max statistics overlap every bound.
+ */
+public record ColumnarFilter(Long minStudentId, Long maxStudentId, Integer minScore, Integer maxScore,
+                             LocalDate minDob, LocalDate maxDob) {
+
+    public static final ColumnarFilter ALL = new ColumnarFilter(null, null, null, null, null, null);
+
+    public boolean mayMatch(StudentColumnar.RowGroup group) {
+        return (minStudentId == null || group.maxStudentId() >= minStudentId)
+                && (maxStudentId == null || group.minStudentId() <= maxStudentId)
+                && (minScore == null || group.maxScore() >= minScore)
+                && (maxScore == null || group.minScore() <= maxScore)
+                && (minDob == null || !group.maxDob().isBefore(minDob))
+                && (maxDob == null || !group.minDob().isAfter(maxDob));
+    }
+
+    public boolean matches(Student student) {
+        return (minStudentId == null || student.getStudentId() >= minStudentId)
+                && (maxStudentId == null || student.getStudentId() <= maxStudentId)
+                && (minScore == null || student.getScore() >= minScore)
+                && (maxScore == null || student.getScore() <= maxScore)
+                && (minDob == null || !student.getDob().isBefore(minDob))
+                && (maxDob == null || !student.getDob().isAfter(maxDob));
+    }
+}
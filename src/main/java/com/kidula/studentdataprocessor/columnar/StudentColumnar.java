@@ -0,0 +1,276 @@
+package com.kidula.studentdataprocessor.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Layout of the columnar student files (.stc), a small Parquet-like format:
+ * <pre>
+ * "STC1"
+ * row group*   one deflated chunk per column: studentId, firstName, lastName, dob, class, score
+ * footer       per row group: offset, row count, min/max of studentId, score and dob, chunk lengths
+ *              and encodings
+ * int          footer length
+ * "STC1"
+ * </pre>
+ * Each chunk is the varint length of the encoded column followed by the encoded column deflated.
+ * studentId is delta encoded, dob and score are stored as offsets from the row group minimum, and
+ * text columns are dictionary encoded unless most of their values are distinct. The footer is read
+ * first, so a reader can skip row groups whose statistics rule them out without touching them.
+ */
+public final class StudentColumnar {
+
+    public static final String EXTENSION = "stc";
+
+    public static final int COLUMNS = 6;
+    public static final int STUDENT_ID = 0;
+    public static final int FIRST_NAME = 1;
+    public static final int LAST_NAME = 2;
+    public static final int DOB = 3;
+    public static final int CLASS = 4;
+    public static final int SCORE = 5;
+
+    static final byte PLAIN = 0;
+    static final byte DICTIONARY = 1;
+    static final byte DELTA = 2;
+    static final byte FRAME_OF_REFERENCE = 3;
+
+    static final byte[] MAGIC = {'S', 'T', 'C', '1'};
+    static final int TAIL_LENGTH = 4 + MAGIC.length;
+
+    private StudentColumnar() {
+    }
+
+    /**
+     * Position, size and statistics of one row group.
+     */
+    public record RowGroup(long offset, int rows, long minStudentId, long maxStudentId, int minScore, int maxScore,
+                           LocalDate minDob, LocalDate maxDob, int[] chunkLengths, byte[] encodings) {
+
+        public long length() {
+            long length = 0;
+            for (int chunkLength : chunkLengths) {
+                length += chunkLength;
+            }
+            return length;
+        }
+
+        RowGroup movedBy(long shift) {
+            return new RowGroup(offset + shift, rows, minStudentId, maxStudentId, minScore, maxScore, minDob, maxDob,
+                    chunkLengths, encodings);
+        }
+    }
+
+    /**
+     * Writes the row groups of several files, in order, as one file. The parts are files written
+     * independently, e.g. one per id range; their row groups are copied byte for byte.
+     */
+    public static long merge(List<Path> parts, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        long position = MAGIC.length;
+        long rows = 0;
+        List<RowGroup> groups = new ArrayList<>();
+        for (Path part : parts) {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+                List<RowGroup> partGroups = readFooter(channel);
+                if (partGroups.isEmpty()) {
+                    continue;
+                }
+                long start = partGroups.get(0).offset();
+                RowGroup last = partGroups.get(partGroups.size() - 1);
+                long end = last.offset() + last.length();
+                for (RowGroup group : partGroups) {
+                    groups.add(group.movedBy(position - start));
+                    rows += group.rows();
+                }
+                try (InputStream in = Channels.newInputStream(channel.position(start))) {
+                    copy(in, out, end - start);
+                }
+                position += end - start;
+            }
+        }
+        writeFooter(groups, out);
+        return rows;
+    }
+
+    static void writeFooter(List<RowGroup> groups, OutputStream out) throws IOException {
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(footer);
+        data.writeInt(groups.size());
+        for (RowGroup group : groups) {
+            data.writeLong(group.offset());
+            data.writeInt(group.rows());
+            data.writeLong(group.minStudentId());
+            data.writeLong(group.maxStudentId());
+            data.writeInt(group.minScore());
+            data.writeInt(group.maxScore());
+            data.writeLong(group.minDob().toEpochDay());
+            data.writeLong(group.maxDob().toEpochDay());
+            for (int column = 0; column < COLUMNS; column++) {
+                data.writeInt(group.chunkLengths()[column]);
+                data.writeByte(group.encodings()[column]);
+            }
+        }
+        data.flush();
+        footer.writeTo(out);
+        new DataOutputStream(out).writeInt(footer.size());
+        out.write(MAGIC);
+    }
+
+    static List<RowGroup> readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length + TAIL_LENGTH) {
+            throw new IOException("Not a columnar student file: too short");
+        }
+        ByteBuffer tail = ByteBuffer.allocate(TAIL_LENGTH);
+        readFully(channel, tail, size - TAIL_LENGTH);
+        int footerLength = tail.getInt(0);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (tail.get(4 + i) != MAGIC[i]) {
+                throw new IOException("Not a columnar student file: bad magic");
+            }
+        }
+        if (footerLength < 4 || footerLength > size - MAGIC.length - TAIL_LENGTH) {
+            throw new IOException("Corrupt columnar student file: footer length " + footerLength);
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate(footerLength);
+        readFully(channel, footer, size - TAIL_LENGTH - footerLength);
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(footer.array()));
+        int count = data.readInt();
+        List<RowGroup> groups = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long offset = data.readLong();
+            int rows = data.readInt();
+            long minStudentId = data.readLong();
+            long maxStudentId = data.readLong();
+            int minScore = data.readInt();
+            int maxScore = data.readInt();
+            LocalDate minDob = LocalDate.ofEpochDay(data.readLong());
+            LocalDate maxDob = LocalDate.ofEpochDay(data.readLong());
+            int[] lengths = new int[COLUMNS];
+            byte[] encodings = new byte[COLUMNS];
+            for (int column = 0; column < COLUMNS; column++) {
+                lengths[column] = data.readInt();
+                encodings[column] = data.readByte();
+            }
+            groups.add(new RowGroup(offset, rows, minStudentId, maxStudentId, minScore, maxScore, minDob, maxDob,
+                    lengths, encodings));
+        }
+        return groups;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of columnar student file");
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new IOException("Unexpected end of columnar student file");
+            }
+            out.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+
+    // Growable byte buffer with the varint and string primitives of the column encodings
+    static final class Encoder {
+
+        byte[] buf = new byte[1 << 16];
+        int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+
+    static final class Decoder {
+
+        private final byte[] buf;
+        private int pos;
+
+        Decoder(byte[] buf) {
+            this.buf = buf;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= buf.length) {
+                    throw new IOException("Corrupt columnar student file: truncated varint");
+                }
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt columnar student file: varint too long");
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length < 0 || pos + length > buf.length) {
+                throw new IOException("Corrupt columnar student file: bad string length");
+            }
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
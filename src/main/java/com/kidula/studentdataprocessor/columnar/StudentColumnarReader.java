@@ -0,0 +1,158 @@
+package com.kidula.studentdataprocessor.columnar;
+
+import com.kidula.studentdataprocessor.entity.Student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.kidula.studentdataprocessor.columnar.StudentColumnar.*;
+
+/**
+ * Reads a columnar file one row group at a time. Opening reads only the footer; getRowGroups(filter)
+ * drops the groups whose statistics cannot match, and those are never read or inflated.
+ */
+public class StudentColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<RowGroup> groups;
+    private final Inflater inflater = new Inflater();
+
+    private StudentColumnarReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.groups = readFooter(channel);
+    }
+
+    public static StudentColumnarReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new StudentColumnarReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<RowGroup> getRowGroups() {
+        return groups;
+    }
+
+    public List<RowGroup> getRowGroups(ColumnarFilter filter) {
+        List<RowGroup> matching = new ArrayList<>();
+        for (RowGroup group : groups) {
+            if (filter.mayMatch(group)) {
+                matching.add(group);
+            }
+        }
+        return matching;
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (RowGroup group : groups) {
+            rows += group.rows();
+        }
+        return rows;
+    }
+
+    public List<Student> readRowGroup(RowGroup group) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(group.length()));
+        readFully(channel, data, group.offset());
+        byte[] bytes = data.array();
+
+        int rows = group.rows();
+        Decoder[] columns = new Decoder[COLUMNS];
+        int offset = 0;
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column] = new Decoder(inflate(bytes, offset, group.chunkLengths()[column]));
+            offset += group.chunkLengths()[column];
+        }
+
+        String[] firstNames = decodeStrings(columns[FIRST_NAME], group.encodings()[FIRST_NAME], rows);
+        String[] lastNames = decodeStrings(columns[LAST_NAME], group.encodings()[LAST_NAME], rows);
+        String[] classes = decodeStrings(columns[CLASS], group.encodings()[CLASS], rows);
+        long minDob = group.minDob().toEpochDay();
+
+        List<Student> students = new ArrayList<>(rows);
+        long studentId = 0;
+        for (int i = 0; i < rows; i++) {
+            studentId += columns[STUDENT_ID].readZigZag();
+            LocalDate dob = LocalDate.ofEpochDay(minDob + columns[DOB].readVarLong());
+            int score = (int) (group.minScore() + columns[SCORE].readVarLong());
+            students.add(new Student(studentId, firstNames[i], lastNames[i], dob, classes[i], score));
+        }
+        return students;
+    }
+
+    private byte[] inflate(byte[] chunk, int offset, int length) throws IOException {
+        // The chunk starts with the varint length of the inflated column
+        int rawLength = 0;
+        int pos = offset;
+        for (int shift = 0; ; shift += 7) {
+            if (pos >= offset + length || shift > 28) {
+                throw new IOException("Corrupt columnar student file: bad chunk header");
+            }
+            byte b = chunk[pos++];
+            rawLength |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(chunk, pos, offset + length - pos);
+        try {
+            int filled = 0;
+            while (filled < rawLength) {
+                int n = inflater.inflate(raw, filled, rawLength - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Corrupt columnar student file: short chunk");
+                }
+                filled += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt columnar student file: " + e.getMessage(), e);
+        }
+        return raw;
+    }
+
+    private String[] decodeStrings(Decoder decoder, byte encoding, int rows) throws IOException {
+        String[] values = new String[rows];
+        if (encoding == PLAIN) {
+            for (int i = 0; i < rows; i++) {
+                values[i] = decoder.readString();
+            }
+            return values;
+        }
+        if (encoding != DICTIONARY) {
+            throw new IOException("Corrupt columnar student file: unknown encoding " + encoding);
+        }
+        String[] dictionary = new String[(int) decoder.readVarLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = decoder.readString();
+        }
+        for (int i = 0; i < rows; i++) {
+            int index = (int) decoder.readVarLong();
+            if (index < 0 || index >= dictionary.length) {
+                throw new IOException("Corrupt columnar student file: bad dictionary index");
+            }
+            values[i] = dictionary[index];
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
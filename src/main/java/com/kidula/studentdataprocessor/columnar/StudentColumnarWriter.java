@@ -0,0 +1,200 @@
+package com.kidula.studentdataprocessor.columnar;
+
+import com.kidula.studentdataprocessor.entity.Student;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static com.kidula.studentdataprocessor.columnar.StudentColumnar.*;
+
+/**
+ * Streams students into a columnar file. Rows are buffered in one primitive array per column until
+ * a row group is full; the group is then encoded column by column and written, so memory stays at
+ * one row group whatever the number of rows. close() writes the footer.
+ */
+public class StudentColumnarWriter implements Closeable {
+
+    public static final int DEFAULT_ROW_GROUP_ROWS = 1 << 16;
+
+    private final OutputStream out;
+    private final int rowGroupRows;
+    private final long[] studentIds;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final long[] dobs;
+    private final String[] classes;
+    private final int[] scores;
+    private int rows;
+    private long position;
+    private long rowCount;
+    private final List<RowGroup> groups = new ArrayList<>();
+
+    private final Encoder encoder = new Encoder();
+    private final Encoder header = new Encoder();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] deflated = new byte[1 << 16];
+
+    public StudentColumnarWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_ROW_GROUP_ROWS);
+    }
+
+    public StudentColumnarWriter(OutputStream out, int rowGroupRows) throws IOException {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.rowGroupRows = rowGroupRows;
+        studentIds = new long[rowGroupRows];
+        firstNames = new String[rowGroupRows];
+        lastNames = new String[rowGroupRows];
+        dobs = new long[rowGroupRows];
+        classes = new String[rowGroupRows];
+        scores = new int[rowGroupRows];
+        this.out.write(MAGIC);
+        position = MAGIC.length;
+    }
+
+    public void write(Student student) throws IOException {
+        write(student.getStudentId(), student.getFirstName(), student.getLastName(), student.getDob(),
+                student.getStudentClass(), student.getScore());
+    }
+
+    public void write(long studentId, String firstName, String lastName, LocalDate dob, String studentClass,
+                      int score) throws IOException {
+        studentIds[rows] = studentId;
+        firstNames[rows] = firstName;
+        lastNames[rows] = lastName;
+        dobs[rows] = dob.toEpochDay();
+        classes[rows] = studentClass;
+        scores[rows] = score;
+        if (++rows == rowGroupRows) {
+            flushRowGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount + rows;
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE, minDob = Long.MAX_VALUE, maxDob = Long.MIN_VALUE;
+        int minScore = Integer.MAX_VALUE, maxScore = Integer.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            minId = Math.min(minId, studentIds[i]);
+            maxId = Math.max(maxId, studentIds[i]);
+            minDob = Math.min(minDob, dobs[i]);
+            maxDob = Math.max(maxDob, dobs[i]);
+            minScore = Math.min(minScore, scores[i]);
+            maxScore = Math.max(maxScore, scores[i]);
+        }
+
+        int[] lengths = new int[COLUMNS];
+        byte[] encodings = new byte[COLUMNS];
+
+        encoder.reset();
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            encoder.writeZigZag(studentIds[i] - previous);
+            previous = studentIds[i];
+        }
+        encodings[STUDENT_ID] = DELTA;
+        lengths[STUDENT_ID] = writeChunk();
+
+        encodings[FIRST_NAME] = encodeStrings(firstNames);
+        lengths[FIRST_NAME] = writeChunk();
+        encodings[LAST_NAME] = encodeStrings(lastNames);
+        lengths[LAST_NAME] = writeChunk();
+
+        encoder.reset();
+        for (int i = 0; i < rows; i++) {
+            encoder.writeVarLong(dobs[i] - minDob);
+        }
+        encodings[DOB] = FRAME_OF_REFERENCE;
+        lengths[DOB] = writeChunk();
+
+        encodings[CLASS] = encodeStrings(classes);
+        lengths[CLASS] = writeChunk();
+
+        encoder.reset();
+        for (int i = 0; i < rows; i++) {
+            encoder.writeVarLong((long) scores[i] - minScore);
+        }
+        encodings[SCORE] = FRAME_OF_REFERENCE;
+        lengths[SCORE] = writeChunk();
+
+        long length = 0;
+        for (int chunkLength : lengths) {
+            length += chunkLength;
+        }
+        groups.add(new RowGroup(position - length, rows, minId, maxId, minScore, maxScore,
+                LocalDate.ofEpochDay(minDob), LocalDate.ofEpochDay(maxDob), lengths, encodings));
+        rowCount += rows;
+        rows = 0;
+    }
+
+    // Dictionary encoding unless more than half the values are distinct
+    private byte encodeStrings(String[] values) {
+        encoder.reset();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int limit = Math.max(1, rows / 2);
+        for (int i = 0; i < rows && entries.size() <= limit; i++) {
+            if (dictionary.putIfAbsent(values[i], entries.size()) == null) {
+                entries.add(values[i]);
+            }
+        }
+        if (entries.size() > limit) {
+            for (int i = 0; i < rows; i++) {
+                encoder.writeString(values[i]);
+            }
+            return PLAIN;
+        }
+        encoder.writeVarLong(entries.size());
+        for (String entry : entries) {
+            encoder.writeString(entry);
+        }
+        for (int i = 0; i < rows; i++) {
+            encoder.writeVarLong(dictionary.get(values[i]));
+        }
+        return DICTIONARY;
+    }
+
+    // Writes the encoded column as a chunk and returns the chunk length
+    private int writeChunk() throws IOException {
+        header.reset();
+        header.writeVarLong(encoder.size);
+        out.write(header.buf, 0, header.size);
+        int length = header.size;
+
+        deflater.reset();
+        deflater.setInput(encoder.buf, 0, encoder.size);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(deflated);
+            out.write(deflated, 0, n);
+            length += n;
+        }
+        position += length;
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRowGroup();
+            writeFooter(groups, out);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
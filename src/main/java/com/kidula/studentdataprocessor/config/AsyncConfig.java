@@ -1,14 +1,17 @@
 package com.kidula.studentdataprocessor.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
     @Bean(name = "taskExecutor")
@@ -21,4 +24,44 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Renders PDF segments; each worker holds a DB connection only while fetching its next page
+    @Bean(name = "pdfRenderExecutor")
+    public Executor pdfRenderExecutor(@Value("${export.pdf.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("PdfRender-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Scans id ranges for bulk CSV/XLSX/columnar exports; each worker holds one bulk-read connection,
+    // and one is left for the export's planning transaction. Web requests have a pool of their own
+    @Bean(name = "exportScanExecutor")
+    public ThreadPoolTaskExecutor exportScanExecutor(
+            @Value("${export.scan.parallelism:0}") int parallelism,
+            @Value("${datasource.bulk-read.maximum-pool-size:8}") int connectionPoolSize) {
+        int requested = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(1, Math.min(requested, connectionPoolSize - 1));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("ExportScan-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Deflates export blocks for ParallelGzipOutputStream
+    @Bean(name = "compressionExecutor")
+    public Executor compressionExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("Compress-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,81 @@
+package com.kidula.studentdataprocessor.config;
+
+import com.kidula.studentdataprocessor.repository.Workload;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * One Hikari pool per workload, all on spring.datasource.url: interactive requests, bulk readers
+ * (exports, index rebuild; read-only and without autocommit so PostgreSQL streams with a cursor)
+ * and bulk writers (uploads). Each is sized and timed out under datasource.&lt;workload&gt;.*, so a
+ * saturated bulk pool makes bulk jobs wait for each other instead of for web requests.
+ * <p>
+ * JPA, JdbcTemplate and the transaction manager all use the primary DataSource, which routes every
+ * connection to the pool of the current Workload. It is lazy: a transaction opens without a
+ * connection, and the pool is picked by the first statement, which runs inside the repository call
+ * that entered the workload.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("datasource.interactive")
+    public HikariDataSource interactiveDataSource(DataSourceProperties properties) {
+        return pool(properties, "interactive");
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.bulk-read")
+    public HikariDataSource bulkReadDataSource(DataSourceProperties properties) {
+        return pool(properties, "bulk-read");
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.bulk-write")
+    public HikariDataSource bulkWriteDataSource(DataSourceProperties properties) {
+        return pool(properties, "bulk-write");
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("interactiveDataSource") HikariDataSource interactive,
+                                 @Qualifier("bulkReadDataSource") HikariDataSource bulkRead,
+                                 @Qualifier("bulkWriteDataSource") HikariDataSource bulkWrite) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return Workload.current();
+            }
+        };
+        routing.setTargetDataSources(Map.of(
+                Workload.INTERACTIVE, interactive,
+                Workload.BULK_READ, bulkRead,
+                Workload.BULK_WRITE, bulkWrite));
+        routing.setDefaultTargetDataSource(interactive);
+        routing.afterPropertiesSet();
+
+        // Known defaults, so the proxy never borrows a connection just to look them up
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+        lazy.setTargetDataSource(routing);
+        lazy.setDefaultAutoCommit(true);
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return lazy;
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        return pool;
+    }
+}
@@ -0,0 +1,165 @@
+package com.kidula.studentdataprocessor.config;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.repository.Workload;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Idempotent schema changes that ddl-auto=update cannot make. Runs after Hibernate has updated the
+ * schema and before the web server accepts requests. PostgreSQL only; other databases (H2 in tests
+ * and the load test) get their schema from Hibernate.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${students.partitions:0}")
+    private int partitions;
+
+    @PostConstruct
+    public void migrate() throws SQLException {
+        // Rewriting the table and building indexes can take minutes; keep it off the interactive pool
+        try (Workload.Scope scope = Workload.BULK_WRITE.enter()) {
+            if (!isPostgres()) {
+                return;
+            }
+            migrateIdentityToSequence();
+            partitionStudents();
+            createCoveringIndexes();
+            createNameSearchIndexes();
+            createChangeLog();
+        }
+    }
+
+    /**
+     * Tables created while Student.id was IDENTITY keep their ids; the identity (or serial default)
+     * is dropped and the pooled sequence is moved past the highest existing id.
+     */
+    private void migrateIdentityToSequence() {
+        jdbcTemplate.execute("ALTER TABLE students ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("ALTER TABLE students ALTER COLUMN id DROP DEFAULT");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + Student.ID_SEQUENCE
+                + " START WITH 1 INCREMENT BY " + Student.ID_ALLOCATION_SIZE);
+        jdbcTemplate.execute("ALTER SEQUENCE " + Student.ID_SEQUENCE + " INCREMENT BY " + Student.ID_ALLOCATION_SIZE);
+
+        Map<String, Object> sequence = jdbcTemplate.queryForMap("SELECT last_value, is_called FROM " + Student.ID_SEQUENCE);
+        long lastValue = ((Number) sequence.get("last_value")).longValue();
+        long nextValue = Boolean.TRUE.equals(sequence.get("is_called")) ? lastValue + Student.ID_ALLOCATION_SIZE : lastValue;
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM students", Long.class);
+
+        // pooled-lo hands out [value, value + allocationSize), so the next value must be above every id
+        if (maxId != null && nextValue <= maxId) {
+            jdbcTemplate.queryForObject("SELECT setval(?, ?, false)", Long.class, Student.ID_SEQUENCE, maxId + 1);
+        }
+    }
+
+    /**
+     * Converts a plain students table into one hash-partitioned on student_id. The rows are copied
+     * in a single transaction, so a large existing table makes this startup slow once. Changing the
+     * partition count afterwards needs a manual rebuild. Off by default: loads and exports work on
+     * the parent table either way, and partitioning widens the primary key to (id, student_id).
+     */
+    private void partitionStudents() {
+        if (partitions <= 0) {
+            return;
+        }
+        String kind = jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = 'students'::regclass", String.class);
+        if ("p".equals(kind)) {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_inherits WHERE inhparent = 'students'::regclass", Integer.class);
+            if (existing != null && existing != partitions) {
+                log.warn("students has {} partitions, students.partitions={} is ignored", existing, partitions);
+            }
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE students RENAME TO students_unpartitioned");
+            jdbcTemplate.execute("CREATE TABLE students (LIKE students_unpartitioned INCLUDING DEFAULTS) "
+                    + "PARTITION BY HASH (student_id)");
+            for (int i = 0; i < partitions; i++) {
+                jdbcTemplate.execute("CREATE TABLE students_p" + i + " PARTITION OF students "
+                        + "FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + i + ")");
+            }
+            jdbcTemplate.execute("INSERT INTO students SELECT * FROM students_unpartitioned");
+            jdbcTemplate.execute("DROP TABLE students_unpartitioned");
+            // Constraint and index names are freed by the drop. A unique key on a partitioned
+            // table must contain the partition key, hence (id, student_id)
+            jdbcTemplate.execute("ALTER TABLE students ADD PRIMARY KEY (id, student_id)");
+            jdbcTemplate.execute("ALTER TABLE students ADD CONSTRAINT students_student_id_key UNIQUE (student_id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_student_id ON students (student_id)");
+        });
+        log.info("Partitioned students into {} hash partitions on student_id", partitions);
+    }
+
+    /**
+     * Class-filtered listings sort by id, so (student_class, id) serves the filter, the order and the
+     * LIMIT in one index scan. INCLUDE carries the remaining columns, so the page and its count are
+     * index-only scans. It replaces the single-column idx_class.
+     */
+    private void createCoveringIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_students_class_id ON students (student_class, id) "
+                + "INCLUDE (student_id, first_name, last_name, dob, score)");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_class");
+    }
+
+    /**
+     * Indexes for StudentNameSearch. The prefix indexes use the "C" collation so LIKE 'abc%' becomes
+     * an index range that is already in (name, id) order. The trigram index needs the pg_trgm
+     * extension; without it, fragment searches still work but scan the table.
+     */
+    private void createNameSearchIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_students_first_name_prefix "
+                + "ON students ((lower(first_name) COLLATE \"C\"), id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_students_last_name_prefix "
+                + "ON students ((lower(last_name) COLLATE \"C\"), id)");
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (DataAccessException e) {
+            log.warn("pg_trgm is not available, name fragment search will scan students: {}", e.getMessage());
+            return;
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_students_name_trgm "
+                + "ON students USING gin (lower(first_name || ' ' || last_name) gin_trgm_ops)");
+    }
+
+    /**
+     * Tables of StudentChangeLog: the changed studentIds per load and the row fingerprints of the
+     * last load they were computed against.
+     */
+    private void createChangeLog() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS student_change_version_seq");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS student_changes (version BIGINT NOT NULL, "
+                + "student_id BIGINT NOT NULL, operation CHAR(1) NOT NULL, PRIMARY KEY (version, student_id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS student_fingerprints (student_id BIGINT PRIMARY KEY, "
+                + "fingerprint UUID NOT NULL)");
+    }
+
+    private boolean isPostgres() throws SQLException {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package com.kidula.studentdataprocessor.controller;
 
+import com.kidula.studentdataprocessor.columnar.StudentColumnar;
+import com.kidula.studentdataprocessor.dto.Checkpoint;
+import com.kidula.studentdataprocessor.dto.PoolStatsDTO;
 import com.kidula.studentdataprocessor.dto.ProgressDTO;
+import com.kidula.studentdataprocessor.dto.UploadStatusDTO;
+import com.kidula.studentdataprocessor.service.CheckpointStore;
+import com.kidula.studentdataprocessor.service.ChunkedUploadService;
 import com.kidula.studentdataprocessor.service.DataGenerationService;
 import com.kidula.studentdataprocessor.service.DataProcessingService;
 import com.kidula.studentdataprocessor.service.DataUploadService;
+import com.kidula.studentdataprocessor.service.DuplicatePolicy;
+import com.kidula.studentdataprocessor.service.JobCancelledException;
+import com.kidula.studentdataprocessor.service.JobControl;
+import com.kidula.studentdataprocessor.service.ProgressStream;
 import com.kidula.studentdataprocessor.service.ProgressTracker;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,14 +26,25 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -27,6 +52,11 @@ import java.util.UUID;
 @CrossOrigin(origins = "*")
 @Tag(name = "Data Processing", description = "APIs for data generation, processing, and uploading")
 public class DataController {
+    private static final String TRANSFORMS_DESCRIPTION =
+            "Transform chain, e.g. \"score = clamp(score + 5, 0, 100); filter score >= 60\"; ";
+    private static final String DUPLICATES_DESCRIPTION =
+            "What to do with rows repeating an earlier studentId: FIRST_WINS, LAST_WINS or REJECT "
+                    + "(to the dead-letter file). Defaults to ingest.duplicates";
     @Autowired
     private DataGenerationService dataGenerationService;
     @Autowired
@@ -35,32 +65,53 @@ public class DataController {
     private DataUploadService dataUploadService;
     @Autowired
     private ProgressTracker progressTracker;
-    private final String STORAGE_PATH = "C:/var/log/applications/API/dataprocessing/";
+    @Autowired
+    private ProgressStream progressStream;
+    @Autowired
+    private JobControl jobControl;
+    @Autowired
+    private CheckpointStore checkpointStore;
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+    @Autowired
+    private TransformCompiler transformCompiler;
+    @Autowired
+    private List<HikariDataSource> connectionPools;
+    @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
+    private String storagePath;
     @Operation(summary = "Generate Excel file with student data")
     @PostMapping("/generate")
-    public ResponseEntity<Map<String, String>> generateData(@RequestParam long numberOfRecords) {
+    public ResponseEntity<Map<String, String>> generateData(
+            @RequestParam long numberOfRecords,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.generate")
+            @RequestParam(required = false) String transforms) {
+        TransformChain chain = compileTransforms(transforms);
         String taskId = UUID.randomUUID().toString();
-        dataGenerationService.generateExcelData(taskId, numberOfRecords);
+        dataGenerationService.generateExcelData(taskId, numberOfRecords, chain);
         return ResponseEntity.ok(Map.of("taskId", taskId, "message", "Data generation started"));
     }
     @Operation(summary = "Process Excel file to CSV")
     @PostMapping(value = "/process-excel", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, String>> processExcel(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, String>> processExcel(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.process")
+            @RequestParam(required = false) String transforms) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
         }
+        TransformChain chain = compileTransforms(transforms);
         try {
             String taskId = UUID.randomUUID().toString();
 
 
-            File directory = new File(STORAGE_PATH);
+            File directory = new File(storagePath);
             if (!directory.exists()) directory.mkdirs();
 
-            String tempFilePath = STORAGE_PATH + "upload_" + taskId + ".xlsx";
+            String tempFilePath = storagePath + "upload_" + taskId + ".xlsx";
             File tempFile = new File(tempFilePath);
             file.transferTo(tempFile);
             // Pass the PATH string
-            dataProcessingService.processExcelToCsv(taskId, tempFilePath);
+            dataProcessingService.processExcelToCsv(taskId, tempFilePath, chain);
             return ResponseEntity.ok(Map.of("taskId", taskId, "message", "Excel processing started"));
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Could not save file: " + e.getMessage()));
@@ -68,30 +119,273 @@ public class DataController {
     }
     @Operation(summary = "Upload CSV file to database")
     @PostMapping(value = "/upload-csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, String>> uploadCsv(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, String>> uploadCsv(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = DUPLICATES_DESCRIPTION)
+            @RequestParam(required = false) String duplicates,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.upload")
+            @RequestParam(required = false) String transforms) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
         }
+        DuplicatePolicy policy = DuplicatePolicy.parse(duplicates);
+        TransformChain chain = compileTransforms(transforms);
         try {
             String taskId = UUID.randomUUID().toString();
 
-            File directory = new File(STORAGE_PATH);
+            File directory = new File(storagePath);
             if (!directory.exists()) directory.mkdirs();
 
-            String tempFilePath = STORAGE_PATH + "upload_" + taskId + ".csv";
+            String tempFilePath = storagePath + "upload_" + taskId + ".csv";
             File tempFile = new File(tempFilePath);
             file.transferTo(tempFile);
 
-            dataUploadService.uploadCsvToDatabase(taskId, tempFilePath);
+            dataUploadService.uploadCsvToDatabase(taskId, tempFilePath, policy, chain);
             return ResponseEntity.ok(Map.of("taskId", taskId, "message", "CSV upload started"));
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Could not save file: " + e.getMessage()));
         }
     }
+    @Operation(summary = "Upload a columnar (.stc) file to the database",
+            description = "Loads a file in the format of the columnar export, with the same duplicate handling, "
+                    + "dead-letter file and resume as a CSV upload. Transforms only run when requested.")
+    @PostMapping(value = "/upload-columnar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, String>> uploadColumnar(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = DUPLICATES_DESCRIPTION)
+            @RequestParam(required = false) String duplicates,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to none, so exported rows load unchanged")
+            @RequestParam(required = false) String transforms) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
+        }
+        DuplicatePolicy policy = DuplicatePolicy.parse(duplicates);
+        TransformChain chain = compileTransforms(transforms);
+        try {
+            String taskId = UUID.randomUUID().toString();
+
+            File directory = new File(storagePath);
+            if (!directory.exists()) directory.mkdirs();
+
+            String tempFilePath = storagePath + "upload_" + taskId + "." + StudentColumnar.EXTENSION;
+            File tempFile = new File(tempFilePath);
+            file.transferTo(tempFile);
+
+            dataUploadService.uploadColumnarToDatabase(taskId, tempFilePath, policy, chain);
+            return ResponseEntity.ok(Map.of("taskId", taskId, "message", "Columnar upload started"));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Could not save file: " + e.getMessage()));
+        }
+    }
+    @Operation(summary = "Stream a CSV body straight into the database",
+            description = "Rows are parsed while the body is still arriving and nothing is written to disk. "
+                    + "The response is sent once every row is committed; pass a taskId to poll progress meanwhile.")
+    @PostMapping(value = "/ingest", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> ingestCsv(
+            @Parameter(description = "Optional task id (UUID) for progress polling and cancellation")
+            @RequestParam(required = false) String taskId,
+            @Parameter(description = DUPLICATES_DESCRIPTION)
+            @RequestParam(required = false) String duplicates,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.upload")
+            @RequestParam(required = false) String transforms,
+            HttpServletRequest request) {
+        try {
+            taskId = taskId == null ? UUID.randomUUID().toString() : UUID.fromString(taskId).toString();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "taskId must be a UUID"));
+        }
+        DuplicatePolicy policy = DuplicatePolicy.parse(duplicates);
+        TransformChain chain = compileTransforms(transforms);
+        InputStream body;
+        try {
+            body = request.getInputStream();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("taskId", taskId, "error", "Ingest failed: " + e.getMessage()));
+        }
+        // Claimed here so two requests with the same taskId cannot both start; ingestStream releases it
+        if (jobControl.tryRegister(taskId) == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Task " + taskId + " is still running"));
+        }
+        try {
+            long rows = dataUploadService.ingestStream(taskId, body, request.getContentLengthLong(), policy, chain);
+            ProgressDTO progress = progressTracker.getProgress(taskId);
+            return ResponseEntity.ok(Map.of("taskId", taskId, "rows", rows, "invalidRows", progress.getErrorCount(),
+                    "duplicateRows", progress.getDuplicateCount(), "message", "CSV ingested"));
+        } catch (JobCancelledException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("taskId", taskId, "error", "Ingest cancelled"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("taskId", taskId, "error", "Ingest failed: " + e.getMessage()));
+        }
+    }
+    @Operation(summary = "Stream progress of many tasks",
+            description = "Server-Sent Events: one 'progress' event per frame holding the changed tasks as compact deltas "
+                    + "(i=taskId, s=status, c=current, t=total, ms=elapsed, a=artifactId, e=error, x=invalid rows, d=duplicate rows). "
+                    + "The same frames for all tasks are published on the STOMP topic /topic/progress.")
+    @GetMapping(value = "/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(
+            @Parameter(description = "Comma-separated task ids to watch; omit to watch every task")
+            @RequestParam(required = false) Set<String> taskIds) {
+        return progressStream.subscribe(taskIds == null ? Set.of() : taskIds);
+    }
     @Operation(summary = "Get task progress")
     @GetMapping("/progress/{taskId}")
     public ResponseEntity<ProgressDTO> getProgress(@PathVariable String taskId) {
         ProgressDTO progress = progressTracker.getProgress(taskId);
         return ResponseEntity.ok(progress);
     }
+    @Operation(summary = "Get connection pool usage",
+            description = "Size, active, idle and waiting threads of the interactive, bulk-read and bulk-write pools. "
+                    + "A pool that has not been used yet reports no connections.")
+    @GetMapping("/pools")
+    public ResponseEntity<List<PoolStatsDTO>> getPools() {
+        return ResponseEntity.ok(connectionPools.stream().map(this::poolStats).toList());
+    }
+    @Operation(summary = "Cancel a running task", description = "Stops generation, processing, upload or export tasks at the next row.")
+    @PostMapping("/cancel/{taskId}")
+    public ResponseEntity<Map<String, String>> cancelTask(@PathVariable String taskId) {
+        if (!jobControl.cancel(taskId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No running task " + taskId));
+        }
+        return ResponseEntity.ok(Map.of("taskId", taskId, "message", "Cancellation requested"));
+    }
+    @Operation(summary = "Resume a failed or cancelled CSV or columnar upload from its last committed batch")
+    @PostMapping("/resume/{taskId}")
+    public ResponseEntity<Map<String, String>> resumeUpload(@PathVariable String taskId) {
+        Optional<Checkpoint> checkpoint = checkpointStore.load(taskId)
+                .filter(c -> Checkpoint.UPLOAD_CSV.equals(c.getJobType())
+                        || Checkpoint.UPLOAD_COLUMNAR.equals(c.getJobType()));
+        if (checkpoint.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No upload checkpoint for task " + taskId));
+        }
+        if (jobControl.tryRegister(taskId) == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Task " + taskId + " is still running"));
+        }
+        try {
+            dataUploadService.resumeUpload(checkpoint.get());
+        } catch (RuntimeException e) {
+            jobControl.release(taskId); // not dispatched, so the job will not release it
+            throw e;
+        }
+        return ResponseEntity.ok(Map.of("taskId", taskId,
+                "message", "Upload resumed after row " + checkpoint.get().getCommittedRows()));
+    }
+    @Operation(summary = "Start a resumable chunked upload", description = "Preallocates the target file. Send chunks with PUT, then complete.")
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initiateUpload(@RequestParam String fileName, @RequestParam long totalSize) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.initiate(fileName, totalSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Could not create upload: " + e.getMessage()));
+        }
+    }
+    @Operation(summary = "Upload one chunk at a byte offset", description = "The raw chunk is the request body; X-Chunk-CRC32C carries its hex CRC32C.")
+    @PutMapping(value = "/uploads/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestParam long offset,
+                                         @RequestHeader("X-Chunk-CRC32C") String checksum,
+                                         HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, offset,
+                    request.getContentLengthLong(), checksum, request.getInputStream()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Could not write chunk: " + e.getMessage()));
+        }
+    }
+    @Operation(summary = "Get chunked upload status", description = "Lists the byte ranges still missing, so an interrupted client knows what to resend.")
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+    @Operation(summary = "Start loading a CSV upload before it is complete", description = "Rows are read from the received prefix as chunks arrive.")
+    @PostMapping("/uploads/{uploadId}/process")
+    public ResponseEntity<?> processUpload(
+            @PathVariable String uploadId,
+            @Parameter(description = DUPLICATES_DESCRIPTION)
+            @RequestParam(required = false) String duplicates,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.upload")
+            @RequestParam(required = false) String transforms) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.startProcessing(uploadId, DuplicatePolicy.parse(duplicates),
+                    compileTransforms(transforms)));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    @Operation(summary = "Complete a chunked upload", description = "Verifies every byte arrived and starts processing unless it already started.")
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(
+            @PathVariable String uploadId,
+            @Parameter(description = DUPLICATES_DESCRIPTION)
+            @RequestParam(required = false) String duplicates,
+            @Parameter(description = TRANSFORMS_DESCRIPTION + "defaults to transform.upload or transform.process by file type")
+            @RequestParam(required = false) String transforms) {
+        try {
+            UploadStatusDTO status = chunkedUploadService.complete(uploadId, DuplicatePolicy.parse(duplicates),
+                    compileTransforms(transforms));
+            return ResponseEntity.ok(status);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+    @Operation(summary = "Abort a chunked upload")
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, String>> abortUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId);
+            return ResponseEntity.ok(Map.of("uploadId", uploadId, "message", "Upload aborted"));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Unparsable request parameters: transform chains and duplicate policies
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalidArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    // Null when the request passed no chain, so the job falls back to its configured default
+    private TransformChain compileTransforms(String transforms) {
+        return transforms == null ? null : transformCompiler.compile(transforms);
+    }
+
+    private PoolStatsDTO poolStats(HikariDataSource pool) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean(); // null until the pool's first connection
+        return PoolStatsDTO.builder()
+                .pool(pool.getPoolName())
+                .maximumPoolSize(pool.getMaximumPoolSize())
+                .minimumIdle(pool.getMinimumIdle())
+                .connectionTimeoutMs(pool.getConnectionTimeout())
+                .readOnly(pool.isReadOnly())
+                .autoCommit(pool.isAutoCommit())
+                .activeConnections(bean == null ? 0 : bean.getActiveConnections())
+                .idleConnections(bean == null ? 0 : bean.getIdleConnections())
+                .totalConnections(bean == null ? 0 : bean.getTotalConnections())
+                .threadsAwaitingConnection(bean == null ? 0 : bean.getThreadsAwaitingConnection())
+                .build();
+    }
 }
@@ -0,0 +1,130 @@
+package com.kidula.studentdataprocessor.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes files to the response without copying them through the heap. On Tomcat's NIO connector the
+ * transfer is handed to the connector as a sendfile; elsewhere FileChannel.transferTo is used.
+ * Supports conditional GET (If-None-Match) and single byte ranges guarded by If-Range, so clients
+ * can resume an interrupted download or fetch one file in parallel chunks.
+ */
+@Component
+public class FileStreamer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file,
+                      String etag, String contentType, String downloadName,
+                      String contentEncoding) throws IOException {
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentEncoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + "\"");
+
+        long start = 0;
+        long count = length;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multi-range requests are answered with the full body, which RFC 9110 allows
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                if (length == 0 || !isSatisfiable(rangeHeader, length)) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                count = end - start + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        if ("HEAD".equals(request.getMethod())) {
+            response.setContentLengthLong(count);
+            return;
+        }
+        stream(request, response, file, start, count);
+    }
+
+    private void stream(HttpServletRequest request, HttpServletResponse response,
+                       Path file, long start, long length) throws IOException {
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    // If-Range carries either the ETag or the Last-Modified date the client's partial copy came from
+    private boolean rangeApplies(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.IF_RANGE, ifRange);
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // A first-byte position at or past the end of the file cannot be served
+    private boolean isSatisfiable(String rangeHeader, long length) {
+        String spec = rangeHeader.substring(rangeHeader.indexOf('=') + 1).trim();
+        if (spec.startsWith("-")) {
+            return !spec.equals("-0");
+        }
+        return Long.parseLong(spec.substring(0, spec.indexOf('-')).trim()) < length;
+    }
+}
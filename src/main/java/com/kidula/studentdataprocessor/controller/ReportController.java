@@ -1,9 +1,18 @@
 package com.kidula.studentdataprocessor.controller;
 
+import com.kidula.studentdataprocessor.dto.Checkpoint;
 import com.kidula.studentdataprocessor.dto.ProgressDTO;
 import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.index.StudentIndexService;
+import com.kidula.studentdataprocessor.repository.StudentNameSearch;
 import com.kidula.studentdataprocessor.repository.StudentRepository;
+import com.kidula.studentdataprocessor.repository.StudentSpecifications;
+import com.kidula.studentdataprocessor.service.CachedExport;
+import com.kidula.studentdataprocessor.service.CheckpointStore;
+import com.kidula.studentdataprocessor.service.ExportCache;
+import com.kidula.studentdataprocessor.service.ExportCompression;
 import com.kidula.studentdataprocessor.service.ExportService;
+import com.kidula.studentdataprocessor.service.JobControl;
 import com.kidula.studentdataprocessor.service.ProgressTracker;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,6 +21,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,8 +34,10 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -42,6 +55,24 @@ public class ReportController {
     @Autowired
     private ProgressTracker progressTracker;
 
+    @Autowired
+    private JobControl jobControl;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private ExportCache exportCache;
+
+    @Autowired
+    private FileStreamer fileStreamer;
+
+    @Autowired
+    private StudentIndexService studentIndexService;
+
+    @Autowired
+    private StudentNameSearch studentNameSearch;
+
     @Operation(
             summary = "Get paginated student list",
             description = "Retrieves a paginated list of students with optional filtering by student ID and class. " +
@@ -66,13 +97,10 @@ public class ReportController {
             @RequestParam(required = false) String studentClass) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by("id").ascending());
-        Page<Student> studentPage;
-
-        if (studentId != null || (studentClass != null && !studentClass.isEmpty())) {
-            studentPage = studentRepository.findByFilters(studentId, studentClass, pageable);
-        } else {
-            studentPage = studentRepository.findAll(pageable);
-        }
+        Page<Student> studentPage = studentIndexService.current()
+                .map(index -> index.find(studentId, studentClass, pageable))
+                .orElseGet(() -> studentRepository.findAll(
+                        StudentSpecifications.matching(studentId, studentClass), pageable));
 
         Map<String, Object> response = new HashMap<>();
         response.put("students", studentPage.getContent());
@@ -83,6 +111,38 @@ public class ReportController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Search students by name",
+            description = "Finds students whose first or last name starts with the query, then students whose " +
+                    "full name contains it (queries of 3+ characters). Pass nextCursor from a response to get the next page."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching students, most relevant first"),
+            @ApiResponse(responseCode = "400", description = "Empty query or invalid cursor")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchStudents(
+            @Parameter(description = "Name prefix or fragment, case-insensitive", required = true)
+            @RequestParam String q,
+            @Parameter(description = "Number of records per page (max 100)", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "nextCursor from the previous page")
+            @RequestParam(required = false) String cursor) {
+
+        StudentNameSearch.SearchPage result;
+        try {
+            result = studentNameSearch.search(q, cursor, Math.max(1, Math.min(size, 100)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("students", result.students());
+        response.put("nextCursor", result.nextCursor());
+
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Export students to Excel",
             description = "Exports student data to Excel format. Optionally filter by student ID or class."
@@ -93,29 +153,26 @@ public class ReportController {
                     description = "Excel file generated successfully",
                     content = @Content(mediaType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A load is running; retry when it completes"
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Error generating Excel file"
             )
     })
     @GetMapping("/export/excel")
-    public ResponseEntity<byte[]> exportExcel(
+    public void exportExcel(
             @Parameter(description = "Filter by specific student ID")
             @RequestParam(required = false) Long studentId,
             @Parameter(description = "Filter by class")
-            @RequestParam(required = false) String studentClass) {
+            @RequestParam(required = false) String studentClass,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
-        try {
-            byte[] excelData = exportService.exportToExcel(studentId, studentClass);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "students.xlsx");
-
-            return new ResponseEntity<>(excelData, headers, HttpStatus.OK);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        serveExport("xlsx", ExportCompression.NONE, studentId, studentClass,
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, "students.xlsx", null, request, response);
     }
 
     @Operation(
@@ -128,28 +185,45 @@ public class ReportController {
                     description = "CSV file generated successfully",
                     content = @Content(mediaType = "text/csv")
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A load is running; retry when it completes"
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Error generating CSV file"
             )
     })
     @GetMapping("/export/csv")
-    public ResponseEntity<byte[]> exportCsv(
+    public void exportCsv(
             @Parameter(description = "Filter by specific student ID")
             @RequestParam(required = false) Long studentId,
             @Parameter(description = "Filter by class")
-            @RequestParam(required = false) String studentClass) {
-
+            @RequestParam(required = false) String studentClass,
+            @Parameter(description = "Download as a .csv.gz file: gzip or fast (none for plain). " +
+                    "Without it, clients sending Accept-Encoding: gzip get a gzip-encoded response")
+            @RequestParam(required = false) String compression,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        ExportCompression requested;
         try {
-            byte[] csvData = exportService.exportToCsv(studentId, studentClass);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.TEXT_PLAIN);
-            headers.setContentDispositionFormData("attachment", "students.csv");
-
-            return new ResponseEntity<>(csvData, headers, HttpStatus.OK);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            requested = ExportCompression.parse(compression);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unknown compression: " + compression);
+            return;
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (requested != ExportCompression.NONE) {
+            serveExport("csv", requested, studentId, studentClass,
+                    "application/gzip", "students.csv.gz", null, request, response);
+        } else if (compression == null && acceptsGzip(request)) {
+            serveExport("csv", ExportCompression.FAST, studentId, studentClass,
+                    MediaType.TEXT_PLAIN_VALUE, "students.csv", "gzip", request, response);
+        } else {
+            serveExport("csv", ExportCompression.NONE, studentId, studentClass,
+                    MediaType.TEXT_PLAIN_VALUE, "students.csv", null, request, response);
         }
     }
 
@@ -163,28 +237,78 @@ public class ReportController {
                     description = "PDF file generated successfully",
                     content = @Content(mediaType = "application/pdf")
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A load is running; retry when it completes"
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Error generating PDF file"
             )
     })
     @GetMapping("/export/pdf")
-    public ResponseEntity<byte[]> exportPdf(
+    public void exportPdf(
             @Parameter(description = "Filter by specific student ID")
             @RequestParam(required = false) Long studentId,
             @Parameter(description = "Filter by class")
-            @RequestParam(required = false) String studentClass) {
+            @RequestParam(required = false) String studentClass,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
-        try {
-            byte[] pdfData = exportService.exportToPdf(studentId, studentClass);
+        serveExport("pdf", ExportCompression.NONE, studentId, studentClass,
+                MediaType.APPLICATION_PDF_VALUE, "students.pdf", null, request, response);
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "students.pdf");
+    @Operation(
+            summary = "Export changed students (delta)",
+            description = "Streams only the students inserted (I), updated (U) or deleted (D) by uploads after " +
+                    "sinceVersion, one row per student with its latest operation. The X-Change-Version header is " +
+                    "the version to pass as sinceVersion on the next sync."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Change CSV streamed",
+                    content = @Content(mediaType = "text/csv")
+            ),
+            @ApiResponse(responseCode = "400", description = "Invalid sinceVersion or compression"),
+            @ApiResponse(responseCode = "409", description = "A load is running or just finished; retry")
+    })
+    @GetMapping("/export/changes")
+    public void exportChanges(
+            @Parameter(description = "Last change version already applied (0 for everything)", example = "0")
+            @RequestParam(defaultValue = "0") long sinceVersion,
+            @Parameter(description = "Download as a .csv.gz file: gzip or fast (default none)")
+            @RequestParam(required = false) String compression,
+            HttpServletResponse response) throws IOException {
+
+        ExportCompression requested;
+        try {
+            requested = ExportCompression.parse(compression);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unknown compression: " + compression);
+            return;
+        }
+        if (sinceVersion < 0) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "sinceVersion must not be negative");
+            return;
+        }
 
-            return new ResponseEntity<>(pdfData, headers, HttpStatus.OK);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+        long untilVersion = exportService.latestChangeVersion();
+        boolean gzip = requested != ExportCompression.NONE;
+        response.setContentType(gzip ? "application/gzip" : "text/csv");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"student_changes_"
+                + sinceVersion + "_" + untilVersion + (gzip ? ".csv.gz" : ".csv") + "\"");
+        response.setHeader("X-Change-Version", Long.toString(Math.max(sinceVersion, untilVersion)));
+        try {
+            exportService.exportChanges(sinceVersion, untilVersion, requested, response.getOutputStream());
+        } catch (IllegalStateException e) {
+            // Thrown before any row is written, so only the buffered header is dropped
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
         }
     }
 
@@ -223,9 +347,19 @@ public class ReportController {
             )
     })
     @PostMapping("/export/all/csv")
-    public ResponseEntity<Map<String, String>> exportAllCsv() {
+    public ResponseEntity<Map<String, String>> exportAllCsv(
+            @Parameter(description = "Compress the file while it is written: gzip or fast (default none)")
+            @RequestParam(required = false) String compression) {
+
+        ExportCompression requested;
+        try {
+            requested = ExportCompression.parse(compression);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown compression: " + compression));
+        }
+
         String taskId = UUID.randomUUID().toString();
-        exportService.exportAllToCsv(taskId);
+        exportService.exportAllToCsv(taskId, requested);
 
         Map<String, String> response = new HashMap<>();
         response.put("taskId", taskId);
@@ -234,6 +368,30 @@ public class ReportController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Export all students to a columnar file (Async)",
+            description = "Initiates an asynchronous export to the columnar .stc format: row groups of 65536 rows, "
+                    + "each column encoded and deflated separately, with min/max statistics of studentId, score "
+                    + "and dob per row group in the footer. Download it by the artifactId in the task progress."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Export task started successfully"
+            )
+    })
+    @PostMapping("/export/all/columnar")
+    public ResponseEntity<Map<String, String>> exportAllColumnar() {
+        String taskId = UUID.randomUUID().toString();
+        exportService.exportAllToColumnar(taskId);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("taskId", taskId);
+        response.put("message", "Columnar export started");
+
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Export all students to PDF (Async)",
             description = "Initiates an asynchronous export of all student records to PDF. " +
@@ -280,27 +438,124 @@ public class ReportController {
         return ResponseEntity.ok(progress);
     }
 
-    @GetMapping("/export/download/{fileName}")
-    public ResponseEntity<Resource> downloadExport(
-            @PathVariable String fileName) {
+    @Operation(
+            summary = "Cancel a bulk export task",
+            description = "Stops a running bulk export at the next row. PDF exports keep their last checkpoint."
+    )
+    @PostMapping("/export/cancel/{taskId}")
+    public ResponseEntity<Map<String, String>> cancelExport(
+            @Parameter(description = "Task ID from export operation", required = true)
+            @PathVariable String taskId) {
+
+        if (!jobControl.cancel(taskId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No running task " + taskId));
+        }
+        return ResponseEntity.ok(Map.of("taskId", taskId, "message", "Cancellation requested"));
+    }
+
+    @Operation(
+            summary = "Resume a bulk PDF export",
+            description = "Continues a failed or cancelled PDF export after the last exported student id."
+    )
+    @PostMapping("/export/resume/{taskId}")
+    public ResponseEntity<Map<String, String>> resumeExport(
+            @Parameter(description = "Task ID from export operation", required = true)
+            @PathVariable String taskId) {
+
+        Optional<Checkpoint> checkpoint = checkpointStore.load(taskId)
+                .filter(c -> Checkpoint.EXPORT_PDF.equals(c.getJobType()));
+        if (checkpoint.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No export checkpoint for task " + taskId));
+        }
+        if (jobControl.tryRegister(taskId) == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Task " + taskId + " is still running"));
+        }
         try {
-            File file = new File(System.getProperty("java.io.tmpdir") + File.separator + fileName);
-            if (!file.exists()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-            }
+            exportService.resumeExportToPdf(checkpoint.get());
+        } catch (RuntimeException e) {
+            jobControl.release(taskId); // not dispatched, so the job will not release it
+            throw e;
+        }
+
+        Map<String, String> response = new HashMap<>();
+        response.put("taskId", taskId);
+        response.put("message", "PDF export resumed after row " + checkpoint.get().getCommittedRows());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Download an exported file",
+            description = "Streams an export artifact by the artifactId reported in the task progress. " +
+                    "Supports Range and If-Range for resumable and parallel chunked downloads."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Full file"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range"),
+            @ApiResponse(responseCode = "304", description = "Client copy is current"),
+            @ApiResponse(responseCode = "404", description = "Unknown artifact"),
+            @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @GetMapping("/export/download/{artifactId}")
+    public void downloadExport(
+            @Parameter(description = "Artifact ID from export progress", required = true)
+            @PathVariable String artifactId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Optional<CachedExport> artifact = exportCache.findArtifact(artifactId);
+        if (artifact.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
 
-            Resource resource = new FileSystemResource(file);
-            String contentType = "application/octet-stream";
-            if (fileName.endsWith(".pdf")) contentType = "application/pdf";
-            else if (fileName.endsWith(".csv")) contentType = "text/csv";
-            else if (fileName.endsWith(".xlsx")) contentType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        CachedExport export = artifact.get();
+        fileStreamer.serve(request, response, export.path(), export.etag(),
+                contentType(export.fileName()), "all_students." + export.format(), null);
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
-                    .body(resource);
+    /**
+     * Serves an export from the cache, generating it on a miss. Repeat requests for an unchanged
+     * dataset are answered with 304 when the client already holds the same ETag.
+     */
+    private void serveExport(String format, ExportCompression compression, Long studentId, String studentClass,
+                             String contentType, String downloadName, String contentEncoding,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CachedExport export;
+        try {
+            export = exportService.exportCached(format, compression, studentId, studentClass);
+        } catch (IllegalStateException e) {
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            return;
         }
+
+        // The same cached file sent with Content-Encoding is a different representation, so it gets its own ETag
+        String etag = contentEncoding == null ? export.etag() : "\"" + export.key() + "-" + contentEncoding + "\"";
+        fileStreamer.serve(request, response, export.path(), etag, contentType, downloadName, contentEncoding);
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private String contentType(String fileName) {
+        if (fileName.endsWith(".pdf")) return "application/pdf";
+        if (fileName.endsWith(".csv")) return "text/csv";
+        if (fileName.endsWith(".gz")) return "application/gzip";
+        if (fileName.endsWith(".xlsx")) return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        return "application/octet-stream";
     }
 }
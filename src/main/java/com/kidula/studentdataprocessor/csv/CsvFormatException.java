@@ -0,0 +1,8 @@
+package com.kidula.studentdataprocessor.csv;
+
+public class CsvFormatException extends RuntimeException {
+
+    public CsvFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,230 @@
+package com.kidula.studentdataprocessor.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * RFC-4180 reader that works on UTF-8 bytes. Each row is unescaped into a reusable byte buffer and
+ * fields are exposed as offsets into it, so numeric and date columns are parsed straight from bytes
+ * and only text columns become Strings. Accepts quoted and unquoted fields, doubled quotes, quoted
+ * line breaks and both LF and CRLF row endings.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int MAX_FIELDS = 64;
+
+    private final InputStream in;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    private byte[] row = new byte[256];
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private int fieldCount;
+    private long rowNumber;
+
+    public CsvReader(InputStream in) {
+        this(in, 1 << 16);
+    }
+
+    public CsvReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next row. Returns false at end of input. A blank line is returned as a row
+     * with a single empty field, like OpenCSV does.
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        int len = 0;
+        int b = read();
+        if (b < 0) {
+            return false;
+        }
+        rowNumber++;
+
+        while (true) {
+            if (fieldCount == MAX_FIELDS) {
+                throw new CsvFormatException("Row " + rowNumber + " has more than " + MAX_FIELDS + " fields");
+            }
+            starts[fieldCount] = len;
+
+            if (b == '"') {
+                while (true) {
+                    b = read();
+                    if (b < 0) {
+                        throw new CsvFormatException("Unterminated quoted field in row " + rowNumber);
+                    }
+                    if (b == '"') {
+                        b = read();
+                        if (b != '"') {
+                            break; // closing quote
+                        }
+                    }
+                    len = append(len, b);
+                }
+                // Anything between the closing quote and the delimiter is kept, as lenient readers do
+                while (b >= 0 && b != ',' && b != '\n' && b != '\r') {
+                    len = append(len, b);
+                    b = read();
+                }
+            } else {
+                while (b >= 0 && b != ',' && b != '\n' && b != '\r') {
+                    len = append(len, b);
+                    b = read();
+                }
+            }
+            ends[fieldCount++] = len;
+
+            if (b == ',') {
+                b = read();
+                continue;
+            }
+            if (b == '\r' && peek() == '\n') {
+                read();
+            }
+            return true;
+        }
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public boolean isEmpty(int field) {
+        checkField(field);
+        return starts[field] == ends[field];
+    }
+
+    public String getString(int field) {
+        checkField(field);
+        return new String(row, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+    }
+
+    public long getLong(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && row[i] == '-';
+        if (negative || (i < end && row[i] == '+')) {
+            i++;
+        }
+        if (i == end) {
+            throw numberError(field);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberError(field);
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw numberError(field);
+            }
+            value = value * 10 - digit; // accumulate negatively so Long.MIN_VALUE parses
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw numberError(field);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    public int getInt(int field) {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberError(field);
+        }
+        return (int) value;
+    }
+
+    // ISO yyyy-MM-dd
+    public LocalDate getDate(int field) {
+        checkField(field);
+        int i = starts[field];
+        if (ends[field] - i != 10 || row[i + 4] != '-' || row[i + 7] != '-') {
+            throw new CsvFormatException("Field " + field + " in row " + rowNumber + " is not an ISO date: " + getString(field));
+        }
+        return LocalDate.of(digits(field, i, 4), digits(field, i + 5, 2), digits(field, i + 8, 2));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int digits(int field, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new CsvFormatException("Field " + field + " in row " + rowNumber + " is not an ISO date: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw new CsvFormatException("Row " + rowNumber + " has " + fieldCount + " fields, field " + field + " requested");
+        }
+    }
+
+    private CsvFormatException numberError(int field) {
+        return new CsvFormatException("Field " + field + " in row " + rowNumber + " is not a number: " + getString(field));
+    }
+
+    private int append(int len, int b) {
+        if (len == row.length) {
+            row = Arrays.copyOf(row, len * 2);
+        }
+        row[len] = (byte) b;
+        return len + 1;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+package com.kidula.studentdataprocessor.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * RFC-4180 writer that encodes straight into a byte buffer. Numbers and dates are written digit by
+ * digit without toString(), and text is quoted only when it contains a delimiter, quote or line
+ * break. Rows end with LF, matching what OpenCSV wrote before.
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+    private boolean rowStarted;
+
+    public CsvWriter(OutputStream out) {
+        this(out, 1 << 16);
+    }
+
+    public CsvWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+    }
+
+    public CsvWriter writeString(String value) throws IOException {
+        separator();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            writeText(value);
+            return this;
+        }
+        put('"');
+        int from = 0;
+        int quote;
+        while ((quote = value.indexOf('"', from)) >= 0) {
+            writeText(value.substring(from, quote + 1));
+            put('"');
+            from = quote + 1;
+        }
+        writeText(from == 0 ? value : value.substring(from));
+        put('"');
+        return this;
+    }
+
+    public CsvWriter writeLong(long value) throws IOException {
+        separator();
+        ensure(20);
+        if (value < 0) {
+            buf[pos++] = '-';
+        } else {
+            value = -value; // work on the negative side so Long.MIN_VALUE has no overflow
+        }
+        int digits = 1;
+        for (long v = value; v <= -10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' - value % 10);
+            value /= 10;
+        }
+        pos = end;
+        return this;
+    }
+
+    public CsvWriter writeInt(int value) throws IOException {
+        return writeLong(value);
+    }
+
+    // ISO yyyy-MM-dd, the same text LocalDate.toString() produces for four-digit years
+    public CsvWriter writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return writeString(date.toString());
+        }
+        separator();
+        ensure(10);
+        fixed(year, 4);
+        buf[pos++] = '-';
+        fixed(date.getMonthValue(), 2);
+        buf[pos++] = '-';
+        fixed(date.getDayOfMonth(), 2);
+        return this;
+    }
+
+    public CsvWriter writeRow(String... values) throws IOException {
+        for (String value : values) {
+            writeString(value);
+        }
+        return endRow();
+    }
+
+    public CsvWriter endRow() throws IOException {
+        put('\n');
+        rowStarted = false;
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeText(String value) throws IOException {
+        int length = value.length();
+        int i = 0;
+        // ASCII fast path; anything else goes through the UTF-8 encoder
+        while (i < length) {
+            if (pos == buf.length) {
+                drain();
+            }
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = value.substring(i).getBytes(StandardCharsets.UTF_8);
+                writeBytes(encoded);
+                return;
+            }
+            buf[pos++] = (byte) c;
+            i++;
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buf.length - pos) {
+            drain();
+            if (bytes.length > buf.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void fixed(int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += width;
+    }
+
+    private void separator() throws IOException {
+        if (rowStarted) {
+            put(',');
+        }
+        rowStarted = true;
+    }
+
+    private void put(char c) throws IOException {
+        if (pos == buf.length) {
+            drain();
+        }
+        buf[pos++] = (byte) c;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buf.length - pos < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.kidula.studentdataprocessor.csv;
+
+import com.kidula.studentdataprocessor.entity.Student;
+
+import java.io.IOException;
+
+/**
+ * Fixed column layout of the student CSV files: studentId, firstName, lastName, dob, class, score.
+ */
+public final class StudentCsv {
+
+    public static final int STUDENT_ID = 0;
+    public static final int FIRST_NAME = 1;
+    public static final int LAST_NAME = 2;
+    public static final int DOB = 3;
+    public static final int CLASS = 4;
+    public static final int SCORE = 5;
+
+    public static final int FIELD_COUNT = 6;
+
+    public static final String[] EXPORT_HEADER = {"Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
+
+    private StudentCsv() {
+    }
+
+    /**
+     * Returns why the current row cannot be a student, or null. Covers what read() does not
+     * reject by itself: the field count and blank text fields. Only looks at field bounds.
+     */
+    public static String check(CsvReader reader) {
+        if (reader.getFieldCount() != FIELD_COUNT) {
+            return "Expected " + FIELD_COUNT + " fields, found " + reader.getFieldCount();
+        }
+        if (reader.isEmpty(STUDENT_ID) || reader.isEmpty(FIRST_NAME) || reader.isEmpty(LAST_NAME)
+                || reader.isEmpty(CLASS)) {
+            return "Missing student id, name or class";
+        }
+        return null;
+    }
+
+    public static Student read(CsvReader reader) {
+        return new Student(
+                reader.getLong(STUDENT_ID),
+                reader.getString(FIRST_NAME),
+                reader.getString(LAST_NAME),
+                reader.getDate(DOB),
+                reader.getString(CLASS),
+                reader.getInt(SCORE)
+        );
+    }
+
+    public static void write(CsvWriter writer, Student student) throws IOException {
+        writer.writeLong(student.getStudentId())
+                .writeString(student.getFirstName())
+                .writeString(student.getLastName())
+                .writeDate(student.getDob())
+                .writeString(student.getStudentClass())
+                .writeInt(student.getScore())
+                .endRow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.kidula.studentdataprocessor.dto;
+
+import com.kidula.studentdataprocessor.service.DuplicatePolicy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Checkpoint {
+    public static final String UPLOAD_CSV = "UPLOAD_CSV";
+    public static final String UPLOAD_COLUMNAR = "UPLOAD_COLUMNAR";
+    public static final String EXPORT_PDF = "EXPORT_PDF";
+
+    private String taskId;
+    private String jobType; // UPLOAD_CSV, UPLOAD_COLUMNAR, EXPORT_PDF
+    private String sourcePath;
+    private String targetPath;
+    private long datasetVersion;
+    private long totalRecords;
+    private long committedRows;
+    private long rejectedRows; // invalid upload rows among committedRows
+    private long duplicateRows; // repeated studentIds among committedRows
+    private DuplicatePolicy duplicatePolicy;
+    private String transforms; // transform chain source, so a resume transforms rows the same way
+    private Long lastExportedId;
+    @Builder.Default
+    private List<Long> segmentBounds = new ArrayList<>(); // exclusive lower id of each PDF segment
+    @Builder.Default
+    private List<String> segments = new ArrayList<>(); // finished segment file per bound, null while pending
+    private long updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.kidula.studentdataprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoolStatsDTO {
+    private String pool; // interactive, bulk-read, bulk-write
+    private int maximumPoolSize;
+    private int minimumIdle;
+    private long connectionTimeoutMs;
+    private boolean readOnly;
+    private boolean autoCommit;
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int threadsAwaitingConnection; // waiting for a connection right now
+}
@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ProgressDTO {
     private String taskId;
-    private String status; // RUNNING, COMPLETED, FAILED
+    private String status; // RUNNING, COMPLETED, FAILED, CANCELLED
     private long currentRecords;
     private long totalRecords;
     private double progressPercentage;
@@ -20,7 +20,11 @@ public class ProgressDTO {
     private boolean completed;
     private String message;
     private String filePath;
+    private String artifactId;
+    private Long datasetVersion; // dataset version an export was read from
     private String error;
+    private long errorCount; // invalid rows skipped by an upload
+    private long duplicateCount; // rows of an upload repeating an earlier studentId
 
     public static ProgressDTO running(String taskId, long current, long total, long seconds) {
         return ProgressDTO.builder()
@@ -50,6 +54,12 @@ public class ProgressDTO {
                 .build();
     }
 
+    public static ProgressDTO completed(String taskId, long total, long seconds, String filePath, String artifactId) {
+        ProgressDTO progress = completed(taskId, total, seconds, filePath);
+        progress.setArtifactId(artifactId);
+        return progress;
+    }
+
     public static ProgressDTO failed(String taskId, String error) {
         return ProgressDTO.builder()
                 .taskId(taskId)
@@ -59,4 +69,18 @@ public class ProgressDTO {
                 .message("Process failed")
                 .build();
     }
+
+    public static ProgressDTO cancelled(String taskId, long current, long total, long seconds) {
+        return ProgressDTO.builder()
+                .taskId(taskId)
+                .status("CANCELLED")
+                .currentRecords(current)
+                .totalRecords(total)
+                .progressPercentage(total > 0 ? Math.min(100.0, (double) current / total * 100) : 0)
+                .timeTakenSeconds(seconds / 1000)
+                .timeTakenMs(seconds)
+                .completed(true)
+                .message("Process cancelled")
+                .build();
+    }
 }
@@ -0,0 +1,52 @@
+package com.kidula.studentdataprocessor.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compact form of ProgressDTO for the multiplexed progress streams: one-letter keys, and fields
+ * that are unset for the task's state are left out.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProgressDelta {
+    @JsonProperty("i")
+    private String taskId;
+    @JsonProperty("s")
+    private String status;
+    @JsonProperty("c")
+    private Long currentRecords;
+    @JsonProperty("t")
+    private Long totalRecords;
+    @JsonProperty("ms")
+    private Long timeTakenMs;
+    @JsonProperty("a")
+    private String artifactId;
+    @JsonProperty("e")
+    private String error;
+    @JsonProperty("x")
+    private Long errorCount;
+    @JsonProperty("d")
+    private Long duplicateCount;
+
+    public static ProgressDelta of(ProgressDTO progress) {
+        return ProgressDelta.builder()
+                .taskId(progress.getTaskId())
+                .status(progress.getStatus())
+                .currentRecords(progress.getCurrentRecords())
+                .totalRecords(progress.getTotalRecords() > 0 ? progress.getTotalRecords() : null)
+                .timeTakenMs(progress.getTimeTakenMs() > 0 ? progress.getTimeTakenMs() : null)
+                .artifactId(progress.getArtifactId())
+                .error(progress.getError())
+                .errorCount(progress.getErrorCount() > 0 ? progress.getErrorCount() : null)
+                .duplicateCount(progress.getDuplicateCount() > 0 ? progress.getDuplicateCount() : null)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.kidula.studentdataprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatusDTO {
+    private String uploadId;
+    private String fileName;
+    private long totalSize;
+    private long receivedBytes;
+    private long contiguousBytes;
+    private List<long[]> missingRanges; // [start, end) pairs still to be sent
+    private boolean complete;
+    private int recommendedChunkSize;
+    private String taskId; // set once processing has started
+}
@@ -0,0 +1,102 @@
+package com.kidula.studentdataprocessor.index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing long -> int map over two primitive arrays with linear probing. Values must be
+ * non-negative (they are row numbers); -1 marks an empty slot, so any long is a valid key.
+ * The table doubles when it passes the load factor. Not thread-safe while being filled; read-only
+ * use after that is safe to share.
+ */
+public final class LongIntHashMap {
+
+    private static final int EMPTY = -1;
+    private static final double MAX_LOAD = 0.7;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit((int) Math.max(2, Math.ceil(Math.max(expectedSize, 1) / MAX_LOAD)) - 1) << 1);
+    }
+
+    /**
+     * Stores value under key unless the key is present. Returns the existing value, or -1 when the
+     * value was stored.
+     */
+    public int putIfAbsent(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        if (size + 1 > keys.length * MAX_LOAD) {
+            grow();
+        }
+        int slot = slot(key);
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return EMPTY;
+    }
+
+    // Returns -1 when absent
+    public int get(long key) {
+        int slot = slot(key);
+        int value;
+        while ((value = values[slot]) != EMPTY) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        if (keys.length == 1 << 30) {
+            throw new IllegalStateException("LongIntHashMap cannot hold more than " + size + " entries");
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        // murmur3 finalizer: sequential ids spread over the table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,200 @@
+package com.kidula.studentdataprocessor.index;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-memory copy of the students table in column arrays. Row r is the r-th student in id
+ * order. Lookups by studentId go through a LongIntHashMap, each class has a posting list of row
+ * numbers (ascending, so also id order), and names are UTF-8 in one packed byte arena. The heap
+ * holds a handful of large primitive arrays instead of millions of objects, so the garbage
+ * collector has almost nothing to trace; Student objects are only created for the rows of a
+ * returned page.
+ */
+public final class StudentIndex {
+
+    private final long datasetVersion;
+    private final int size;
+    private final long[] ids;
+    private final long[] studentIds;
+    private final int[] dobEpochDays;
+    private final int[] scores;
+    private final byte[] classCodes;
+    private final String[] classNames;
+    private final int[][] classRows;
+    private final int[] nameOffsets; // first name of row r at 2r, last name at 2r + 1, end at the next offset
+    private final byte[] names;
+    private final LongIntHashMap rowByStudentId;
+
+    private StudentIndex(Builder builder) {
+        this.datasetVersion = builder.datasetVersion;
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.studentIds = Arrays.copyOf(builder.studentIds, size);
+        this.dobEpochDays = Arrays.copyOf(builder.dobEpochDays, size);
+        this.scores = Arrays.copyOf(builder.scores, size);
+        this.classCodes = Arrays.copyOf(builder.classCodes, size);
+        this.nameOffsets = Arrays.copyOf(builder.nameOffsets, 2 * size + 1);
+        this.names = Arrays.copyOf(builder.names, builder.namesLength);
+        this.rowByStudentId = builder.rowByStudentId;
+
+        this.classNames = builder.classCodeByName.keySet().toArray(new String[0]);
+        int[] counts = new int[classNames.length];
+        for (int row = 0; row < size; row++) {
+            counts[classCodes[row] & 0xFF]++;
+        }
+        this.classRows = new int[classNames.length][];
+        for (int c = 0; c < classNames.length; c++) {
+            classRows[c] = new int[counts[c]];
+        }
+        int[] filled = new int[classNames.length];
+        for (int row = 0; row < size; row++) {
+            int c = classCodes[row] & 0xFF;
+            classRows[c][filled[c]++] = row;
+        }
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Same result as the repository listing: filtered by studentId and/or class, in id order.
+     */
+    public Page<Student> find(Long studentId, String studentClass, Pageable pageable) {
+        boolean byClass = studentClass != null && !studentClass.isEmpty();
+        int classCode = byClass ? classCode(studentClass) : -1;
+        if (byClass && classCode < 0) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        if (studentId != null) {
+            int row = rowByStudentId.get(studentId);
+            boolean match = row >= 0 && (!byClass || (classCodes[row] & 0xFF) == classCode);
+            List<Student> content = match && pageable.getOffset() == 0 ? List.of(toStudent(row)) : List.of();
+            return new PageImpl<>(content, pageable, match ? 1 : 0);
+        }
+
+        int[] rows = byClass ? classRows[classCode] : null;
+        int total = byClass ? rows.length : size;
+        long from = Math.min(pageable.getOffset(), total);
+        int to = (int) Math.min(from + pageable.getPageSize(), total);
+        List<Student> content = new ArrayList<>(to - (int) from);
+        for (int i = (int) from; i < to; i++) {
+            content.add(toStudent(byClass ? rows[i] : i));
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    public Student toStudent(int row) {
+        Student student = new Student(studentIds[row], name(2 * row), name(2 * row + 1),
+                LocalDate.ofEpochDay(dobEpochDays[row]), classNames[classCodes[row] & 0xFF], scores[row]);
+        student.setId(ids[row]);
+        return student;
+    }
+
+    private int classCode(String studentClass) {
+        for (int c = 0; c < classNames.length; c++) {
+            if (classNames[c].equals(studentClass)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private String name(int slot) {
+        int start = nameOffsets[slot];
+        return new String(names, start, nameOffsets[slot + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rows must be added in id order.
+     */
+    public static final class Builder {
+
+        private static final int MAX_CLASSES = 256;
+
+        private final long datasetVersion;
+        private final LongIntHashMap rowByStudentId;
+        private final Map<String, Integer> classCodeByName = new LinkedHashMap<>();
+        private int size;
+        private long[] ids;
+        private long[] studentIds;
+        private int[] dobEpochDays;
+        private int[] scores;
+        private byte[] classCodes;
+        private int[] nameOffsets;
+        private byte[] names;
+        private int namesLength;
+
+        public Builder(long datasetVersion, int expectedRows) {
+            int capacity = Math.max(16, expectedRows);
+            this.datasetVersion = datasetVersion;
+            this.rowByStudentId = new LongIntHashMap(capacity);
+            this.ids = new long[capacity];
+            this.studentIds = new long[capacity];
+            this.dobEpochDays = new int[capacity];
+            this.scores = new int[capacity];
+            this.classCodes = new byte[capacity];
+            this.nameOffsets = new int[2 * capacity + 1];
+            this.names = new byte[capacity * 12];
+        }
+
+        public Builder add(long id, long studentId, String firstName, String lastName, LocalDate dob,
+                           String studentClass, int score) {
+            if (size == ids.length) {
+                throw new IllegalStateException("More rows than the " + ids.length + " the index was sized for");
+            }
+            if (rowByStudentId.putIfAbsent(studentId, size) >= 0) {
+                throw new IllegalStateException("Duplicate studentId " + studentId);
+            }
+            Integer code = classCodeByName.get(studentClass);
+            if (code == null) {
+                if (classCodeByName.size() == MAX_CLASSES) {
+                    throw new IllegalStateException("More than " + MAX_CLASSES + " classes");
+                }
+                code = classCodeByName.size();
+                classCodeByName.put(studentClass, code);
+            }
+
+            ids[size] = id;
+            studentIds[size] = studentId;
+            dobEpochDays[size] = (int) dob.toEpochDay();
+            scores[size] = score;
+            classCodes[size] = (byte) (int) code;
+            appendName(2 * size, firstName);
+            appendName(2 * size + 1, lastName);
+            size++;
+            return this;
+        }
+
+        public StudentIndex build() {
+            return new StudentIndex(this);
+        }
+
+        private void appendName(int slot, String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (namesLength + bytes.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + bytes.length));
+            }
+            nameOffsets[slot] = namesLength;
+            System.arraycopy(bytes, 0, names, namesLength, bytes.length);
+            namesLength += bytes.length;
+            nameOffsets[slot + 1] = namesLength;
+        }
+    }
+}
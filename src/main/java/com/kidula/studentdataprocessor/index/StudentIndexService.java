@@ -0,0 +1,101 @@
+package com.kidula.studentdataprocessor.index;
+
+import com.kidula.studentdataprocessor.repository.Workload;
+import com.kidula.studentdataprocessor.service.DatasetVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Holds the current StudentIndex (student.index.enabled=true). It is rebuilt after every
+ * successful load and swapped in with a single volatile write. An index built from an older
+ * dataset version is never served, so callers fall back to the database while a load is running
+ * or the rebuild has not finished.
+ */
+@Service
+public class StudentIndexService {
+
+    private static final int FETCH_SIZE = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Value("${student.index.enabled:false}")
+    private boolean enabled;
+
+    private volatile StudentIndex current;
+
+    public Optional<StudentIndex> current() {
+        StudentIndex index = current;
+        if (index == null || index.getDatasetVersion() != datasetVersion.current()) {
+            return Optional.empty();
+        }
+        return Optional.of(index);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Async
+    public void rebuildAsync() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        long version = datasetVersion.current();
+        StudentIndex index = current;
+        if (index != null && index.getDatasetVersion() == version) {
+            return;
+        }
+        try {
+            StudentIndex built = load(version);
+            // A load that started meanwhile makes this copy stale before it is used
+            if (datasetVersion.current() == version) {
+                current = built;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private StudentIndex load(long version) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            return readOnly.execute(status -> {
+                Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM students", Long.class);
+                StudentIndex.Builder builder = new StudentIndex.Builder(version, (int) (count * 1.01) + 1024);
+
+                // Streams with a cursor inside the transaction instead of materializing every row
+                JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+                streaming.setFetchSize(FETCH_SIZE);
+                streaming.query("SELECT id, student_id, first_name, last_name, dob, student_class, score "
+                        + "FROM students ORDER BY id", rs -> {
+                    builder.add(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4),
+                            rs.getObject(5, java.time.LocalDate.class), rs.getString(6), rs.getInt(7));
+                });
+                return builder.build();
+            });
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.kidula.studentdataprocessor.repository;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Batched writes of the upload jobs, on the bulk-write pool.
+ */
+@Repository
+public class StudentBulkWriter {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // saveAll is one transaction per batch
+    public void insert(List<Student> students) {
+        try (Workload.Scope scope = Workload.BULK_WRITE.enter()) {
+            studentRepository.saveAll(students);
+            studentRepository.flush();
+        }
+    }
+
+    /**
+     * Overwrites every column but the ids of the rows with the same studentId.
+     */
+    public void update(List<Student> students) {
+        if (students.isEmpty()) {
+            return;
+        }
+        try (Workload.Scope scope = Workload.BULK_WRITE.enter()) {
+            jdbcTemplate.batchUpdate("UPDATE students SET first_name = ?, last_name = ?, dob = ?, student_class = ?, "
+                    + "score = ? WHERE student_id = ?", students, students.size(), (ps, student) -> {
+                ps.setString(1, student.getFirstName());
+                ps.setString(2, student.getLastName());
+                ps.setDate(3, Date.valueOf(student.getDob()));
+                ps.setString(4, student.getStudentClass());
+                ps.setInt(5, student.getScore());
+                ps.setLong(6, student.getStudentId());
+            });
+        }
+    }
+}
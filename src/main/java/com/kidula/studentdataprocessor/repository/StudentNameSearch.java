@@ -0,0 +1,146 @@
+package com.kidula.studentdataprocessor.repository;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Name search in three relevance tiers: first name starts with the query, then last name starts
+ * with it, then the query appears anywhere in "first last". Within a tier rows come in name order
+ * (prefix tiers) or id order (fragment tier), so each tier is one keyset range over an index:
+ * the (lower(name) COLLATE "C", id) expression indexes for prefixes and the pg_trgm GIN index for
+ * fragments (see SchemaMigrations). The cursor holds the tier and the last row's sort key and id.
+ */
+@Repository
+public class StudentNameSearch {
+
+    /** Fragments shorter than a trigram cannot use the GIN index and would match nearly every row. */
+    public static final int MIN_FRAGMENT_LENGTH = 3;
+
+    private static final String COLUMNS = "id, student_id, first_name, last_name, dob, student_class, score";
+    private static final String FIRST = "lower(first_name) COLLATE \"C\"";
+    private static final String LAST = "lower(last_name) COLLATE \"C\"";
+    private static final String FULL = "lower(first_name || ' ' || last_name)";
+
+    public record SearchPage(List<Student> students, String nextCursor) {
+    }
+
+    private record Hit(Student student, String sortKey) {
+    }
+
+    private static final RowMapper<Hit> ROW_MAPPER = (rs, rowNum) -> {
+        Student student = new Student(
+                rs.getLong("student_id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getObject("dob", java.time.LocalDate.class),
+                rs.getString("student_class"),
+                rs.getInt("score"));
+        student.setId(rs.getLong("id"));
+        return new Hit(student, rs.getString("sort_key"));
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public SearchPage search(String query, String cursor, int limit) {
+        String term = normalize(query);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search query is empty");
+        }
+        String prefix = escapeLike(term) + "%";
+        String fragment = "%" + escapeLike(term) + "%";
+        int lastTier = term.length() >= MIN_FRAGMENT_LENGTH ? 2 : 1;
+
+        Cursor position = cursor == null || cursor.isEmpty() ? new Cursor(0, null, 0) : Cursor.decode(cursor);
+        List<Student> students = new ArrayList<>(limit);
+        Hit last = null;
+        int tier = position.tier();
+
+        for (; tier <= lastTier && students.size() < limit; tier++) {
+            boolean resume = tier == position.tier() && position.sortKey() != null;
+            List<Hit> hits = fetch(tier, prefix, fragment, resume ? position : null, limit - students.size());
+            for (Hit hit : hits) {
+                students.add(hit.student());
+            }
+            if (!hits.isEmpty()) {
+                last = hits.get(hits.size() - 1);
+            }
+            if (students.size() == limit) {
+                break;
+            }
+        }
+
+        String next = students.size() == limit && last != null
+                ? new Cursor(tier, last.sortKey(), last.student().getId()).encode()
+                : null;
+        return new SearchPage(students, next);
+    }
+
+    private List<Hit> fetch(int tier, String prefix, String fragment, Cursor after, int limit) {
+        switch (tier) {
+            case 0:
+                return after == null
+                        ? jdbcTemplate.query("SELECT " + COLUMNS + ", " + FIRST + " AS sort_key FROM students "
+                                + "WHERE " + FIRST + " LIKE ? ORDER BY " + FIRST + ", id LIMIT ?",
+                        ROW_MAPPER, prefix, limit)
+                        : jdbcTemplate.query("SELECT " + COLUMNS + ", " + FIRST + " AS sort_key FROM students "
+                                + "WHERE " + FIRST + " LIKE ? AND (" + FIRST + ", id) > (?, ?) "
+                                + "ORDER BY " + FIRST + ", id LIMIT ?",
+                        ROW_MAPPER, prefix, after.sortKey(), after.id(), limit);
+            case 1:
+                return after == null
+                        ? jdbcTemplate.query("SELECT " + COLUMNS + ", " + LAST + " AS sort_key FROM students "
+                                + "WHERE " + LAST + " LIKE ? AND " + FIRST + " NOT LIKE ? "
+                                + "ORDER BY " + LAST + ", id LIMIT ?",
+                        ROW_MAPPER, prefix, prefix, limit)
+                        : jdbcTemplate.query("SELECT " + COLUMNS + ", " + LAST + " AS sort_key FROM students "
+                                + "WHERE " + LAST + " LIKE ? AND " + FIRST + " NOT LIKE ? AND (" + LAST + ", id) > (?, ?) "
+                                + "ORDER BY " + LAST + ", id LIMIT ?",
+                        ROW_MAPPER, prefix, prefix, after.sortKey(), after.id(), limit);
+            default:
+                return jdbcTemplate.query("SELECT " + COLUMNS + ", '' AS sort_key FROM students "
+                                + "WHERE " + FULL + " LIKE ? AND " + FIRST + " NOT LIKE ? AND " + LAST + " NOT LIKE ? "
+                                + "AND id > ? ORDER BY id LIMIT ?",
+                        ROW_MAPPER, fragment, prefix, prefix, after == null ? 0L : after.id(), limit);
+        }
+    }
+
+    static String normalize(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private record Cursor(int tier, String sortKey, long id) {
+
+        String encode() {
+            String raw = tier + ":" + id + ":" + (sortKey == null ? "" : sortKey);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":", 3);
+                int tier = Integer.parseInt(parts[0]);
+                if (tier < 0 || tier > 2) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new Cursor(tier, parts[2], Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.kidula.studentdataprocessor.repository;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads one id range of the students table, so several ranges can be scanned at once on separate
+ * connections. Each call is a keyset page in id order; on a partitioned table PostgreSQL merges
+ * the partitions' primary key scans. Everything here runs on the bulk-read pool.
+ */
+@Repository
+public class StudentRangeReader {
+
+    private static final RowMapper<Student> ROW_MAPPER = (rs, rowNum) -> {
+        Student student = new Student(
+                rs.getLong("student_id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getObject("dob", java.time.LocalDate.class),
+                rs.getString("student_class"),
+                rs.getInt("score"));
+        student.setId(rs.getLong("id"));
+        return student;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${datasource.bulk-read.fetch-size:5000}")
+    private int fetchSize;
+
+    private JdbcTemplate streaming;
+
+    @PostConstruct
+    public void init() {
+        streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Rows with afterId < id <= lastId, at most limit of them.
+     */
+    public List<Student> findPage(long afterId, long lastId, int limit) {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            return streaming.query("SELECT id, student_id, first_name, last_name, dob, student_class, score "
+                    + "FROM students WHERE id > ? AND id <= ? ORDER BY id LIMIT ?", ROW_MAPPER, afterId, lastId, limit);
+        }
+    }
+
+    // Every row in id order, for the unfiltered single-request exports
+    public List<Student> findAll() {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            return streaming.query("SELECT id, student_id, first_name, last_name, dob, student_class, score "
+                    + "FROM students ORDER BY id", ROW_MAPPER);
+        }
+    }
+
+    /**
+     * Every interval-th id in id order, from a single ordered index scan: the bounds of ranges of
+     * interval rows each.
+     */
+    public List<Long> findIdsAtRowInterval(long interval) {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            return streaming.queryForList("SELECT id FROM (SELECT id, row_number() OVER (ORDER BY id) AS rn "
+                    + "FROM students) t WHERE t.rn % ? = 0 ORDER BY id", Long.class, interval);
+        }
+    }
+
+    public long count() {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            return jdbcTemplate.queryForObject("SELECT count(*) FROM students", Long.class);
+        }
+    }
+
+    /**
+     * Exports the snapshot of the current REPEATABLE READ transaction for scans on other connections;
+     * must be its first statement. Null where the database has no exported snapshots.
+     * <p>
+     * Locks students first (LOCK takes no snapshot): TRUNCATE is not MVCC-safe, so a truncate that
+     * commits before the scans first touch the table would otherwise hand them an empty table. The
+     * lock is held until the caller's transaction ends.
+     */
+    public String exportSnapshot() {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            jdbcTemplate.execute("LOCK TABLE students IN ACCESS SHARE MODE");
+            return jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+        } catch (DataAccessException e) {
+            return null; // not PostgreSQL
+        }
+    }
+
+    /**
+     * Makes the current transaction read the exported snapshot; must be its first statement. The
+     * id is checked by the caller.
+     */
+    public void useSnapshot(String snapshot) {
+        try (Workload.Scope scope = Workload.BULK_READ.enter()) {
+            jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kidula.studentdataprocessor.repository;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Builds the student filter from only the filters that are set, so each combination becomes its
+ * own plain SQL statement (WHERE student_class = ?) that PostgreSQL can plan against an index,
+ * instead of one (:x IS NULL OR ...) query that falls back to a sequential scan.
+ */
+public final class StudentSpecifications {
+
+    private StudentSpecifications() {
+    }
+
+    public static Specification<Student> matching(Long studentId, String studentClass) {
+        Specification<Student> spec = Specification.where(null);
+        if (studentId != null) {
+            spec = spec.and(hasStudentId(studentId));
+        }
+        if (studentClass != null && !studentClass.isEmpty()) {
+            spec = spec.and(inClass(studentClass));
+        }
+        return spec;
+    }
+
+    public static Specification<Student> hasStudentId(Long studentId) {
+        return (root, query, cb) -> cb.equal(root.get("studentId"), studentId);
+    }
+
+    public static Specification<Student> inClass(String studentClass) {
+        return (root, query, cb) -> cb.equal(root.get("studentClass"), studentClass);
+    }
+}
@@ -0,0 +1,41 @@
+package com.kidula.studentdataprocessor.repository;
+
+/**
+ * The connection pool a data access runs on. Repositories enter their workload around each call;
+ * everything else runs on INTERACTIVE. The pool is picked when a connection is first used, so inside
+ * a transaction the first statement decides and later statements stay on that connection whatever
+ * workload they enter (see DataSourceConfig).
+ */
+public enum Workload {
+
+    INTERACTIVE,
+    BULK_READ,
+    BULK_WRITE;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload == null ? INTERACTIVE : workload;
+    }
+
+    /**
+     * Makes this the current workload until the scope is closed; scopes nest.
+     */
+    public Scope enter() {
+        Workload previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands parsed batches to a dedicated database writer thread through a bounded queue. When the
+ * database falls behind the queue fills up and submit blocks, which in turn stops the parser from
+ * reading its input, so a slow database pushes back on the upload instead of buffering it in memory.
+ */
+public class BatchWriter<T> {
+
+    @FunctionalInterface
+    public interface BatchCommitter<T> {
+        void commit(T batch) throws Exception;
+    }
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Thread thread;
+    private volatile Throwable failure;
+
+    public BatchWriter(String name, int capacity, BatchCommitter<T> committer) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(() -> run(committer), name);
+        this.thread.start();
+    }
+
+    public void submit(T batch) throws Exception {
+        offer(batch);
+    }
+
+    private void offer(Object batch) throws Exception {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            rethrowFailure();
+        }
+        rethrowFailure();
+    }
+
+    // Waits until every submitted batch is committed
+    public void finish() throws Exception {
+        offer(END);
+        thread.join();
+        rethrowFailure();
+    }
+
+    // Drops batches that were queued but not yet committed and stops after the current one
+    public void abort() {
+        queue.clear();
+        queue.offer(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run(BatchCommitter<T> committer) {
+        try {
+            Object batch;
+            while ((batch = queue.take()) != END) {
+                committer.commit((T) batch);
+            }
+        } catch (Throwable t) {
+            failure = t;
+            queue.clear();
+        }
+    }
+
+    private void rethrowFailure() throws Exception {
+        Throwable t = failure;
+        if (t instanceof Exception e) {
+            throw e;
+        }
+        if (t != null) {
+            throw new IllegalStateException("Batch writer failed", t);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.nio.file.Path;
+
+public record CachedExport(String key, long datasetVersion, String format, Path path, long size) {
+
+    public String etag() {
+        return "\"" + key + "\"";
+    }
+
+    public String fileName() {
+        return path.getFileName().toString();
+    }
+}
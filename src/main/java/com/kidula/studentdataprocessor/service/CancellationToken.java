@@ -0,0 +1,26 @@
+package com.kidula.studentdataprocessor.service;
+
+public class CancellationToken {
+
+    private final String taskId;
+    private volatile boolean cancelled;
+
+    public CancellationToken(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Called once per row, so it must stay a single volatile read
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new JobCancelledException(taskId);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kidula.studentdataprocessor.dto.Checkpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class CheckpointStore {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
+    private String storagePath;
+
+    public void save(Checkpoint checkpoint) {
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        try {
+            Path directory = Files.createDirectories(Paths.get(storagePath, "checkpoints"));
+            Path tempFile = directory.resolve(checkpoint.getTaskId() + ".json.tmp");
+            objectMapper.writeValue(tempFile.toFile(), checkpoint);
+            // Write-then-rename so a crash never leaves a half-written checkpoint behind
+            Files.move(tempFile, directory.resolve(checkpoint.getTaskId() + ".json"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint for task " + checkpoint.getTaskId(), e);
+        }
+    }
+
+    public Optional<Checkpoint> load(String taskId) {
+        Path file = checkpointFile(taskId);
+        if (file == null || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), Checkpoint.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read checkpoint for task " + taskId, e);
+        }
+    }
+
+    // Unreadable checkpoints are skipped, like a job whose checkpoint is gone
+    public List<Checkpoint> loadAll() {
+        Path directory = Paths.get(storagePath, "checkpoints");
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                try {
+                    checkpoints.add(objectMapper.readValue(file.toFile(), Checkpoint.class));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list checkpoints", e);
+        }
+        return checkpoints;
+    }
+
+    public void delete(String taskId) {
+        Path file = checkpointFile(taskId);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path checkpointFile(String taskId) {
+        try {
+            // Task ids are always server-issued UUIDs; anything else must not reach the filesystem
+            UUID.fromString(taskId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return Paths.get(storagePath, "checkpoints", taskId + ".json");
+    }
+}
@@ -0,0 +1,238 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.dto.UploadStatusDTO;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Resumable chunked uploads: initiate with the total size, PUT chunks at any offset in any order,
+ * then complete. Chunks go straight from the request body into a preallocated file with positional
+ * writes and only count as received once their CRC32C matches; a chunk overlapping received bytes or
+ * another chunk in flight is refused, so it can never corrupt verified data. CSV uploads may start
+ * processing before completion, reading the contiguous prefix that has arrived so far.
+ * <p>
+ * Uploads are limited to upload.chunked.max-size bytes. Sessions without a chunk for
+ * upload.chunked.idle-timeout-ms are aborted and their file deleted, as if the client had aborted.
+ */
+@Service
+public class ChunkedUploadService {
+
+    public static final int RECOMMENDED_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long STALL_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int AVERAGE_ROW_BYTES = 40;
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    @Autowired
+    private DataUploadService dataUploadService;
+
+    @Autowired
+    private DataProcessingService dataProcessingService;
+
+    @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
+    private String storagePath;
+
+    @Value("${upload.chunked.max-size:10737418240}")
+    private long maxSize;
+
+    @Value("${upload.chunked.idle-timeout-ms:7200000}")
+    private long idleTimeoutMs;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadStatusDTO initiate(String fileName, long totalSize) throws IOException {
+        String type = fileType(fileName);
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("totalSize must be positive");
+        }
+        if (totalSize > maxSize) {
+            throw new IllegalArgumentException("totalSize exceeds the limit of " + maxSize + " bytes");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path directory = Files.createDirectories(Paths.get(storagePath));
+        Path path = directory.resolve("upload_" + uploadId + "." + type);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(totalSize);
+        }
+
+        UploadSession session = new UploadSession(uploadId, fileName, type, totalSize, path);
+        sessions.put(uploadId, session);
+        return status(session);
+    }
+
+    public UploadStatusDTO writeChunk(String uploadId, long offset, long length, String checksum,
+                                      InputStream body) throws IOException {
+        UploadSession session = session(uploadId);
+        if (length < 0) {
+            throw new IllegalArgumentException("Chunks must be sent with a Content-Length");
+        }
+        if (offset < 0 || length == 0 || offset + length > session.getTotalSize()) {
+            throw new IllegalArgumentException("Chunk [" + offset + ", " + (offset + length)
+                    + ") is outside the upload of " + session.getTotalSize() + " bytes");
+        }
+        if (checksum == null || checksum.isBlank()) {
+            throw new IllegalArgumentException("Missing chunk checksum");
+        }
+        long expectedCrc;
+        try {
+            expectedCrc = Long.parseLong(checksum.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Checksum must be a hex CRC32C value");
+        }
+
+        session.claim(offset, offset + length);
+        try {
+            CRC32C crc = new CRC32C();
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(session.getPath(), StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while (written < length && (n = body.read(buffer, 0, (int) Math.min(buffer.length, length - written))) != -1) {
+                    crc.update(buffer, 0, n);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    long position = offset + written;
+                    while (chunk.hasRemaining()) {
+                        position += channel.write(chunk, position);
+                    }
+                    written += n;
+                }
+            }
+
+            // A short or corrupted chunk is simply not recorded; the client resends it
+            if (written != length) {
+                throw new IllegalStateException("Chunk at offset " + offset + " ended after " + written + " of " + length + " bytes");
+            }
+            if (crc.getValue() != expectedCrc) {
+                throw new IllegalStateException("Checksum mismatch for chunk at offset " + offset);
+            }
+            session.markReceived(offset, offset + length);
+        } finally {
+            session.release(offset);
+        }
+        return status(session);
+    }
+
+    public UploadStatusDTO getStatus(String uploadId) {
+        return status(session(uploadId));
+    }
+
+    /**
+     * Starts loading a CSV upload into the database from the bytes received so far; the loader
+     * follows the upload as further chunks arrive.
+     */
+    public synchronized UploadStatusDTO startProcessing(String uploadId, DuplicatePolicy duplicates,
+                                                        TransformChain transforms) throws IOException {
+        UploadSession session = session(uploadId);
+        if (!"csv".equals(session.getType())) {
+            throw new IllegalStateException("Only CSV uploads can be processed before they are complete");
+        }
+        if (session.getTaskId() == null) {
+            String taskId = UUID.randomUUID().toString();
+            session.setTaskId(taskId);
+            dataUploadService.uploadCsvStream(taskId, session.getPath().toString(),
+                    new UploadPrefixInputStream(session, STALL_TIMEOUT_MS),
+                    session.getTotalSize() / AVERAGE_ROW_BYTES, duplicates, transforms);
+        }
+        return status(session);
+    }
+
+    public synchronized UploadStatusDTO complete(String uploadId, DuplicatePolicy duplicates, TransformChain transforms) {
+        UploadSession session = session(uploadId);
+        if (!session.isComplete()) {
+            throw new IllegalStateException("Upload " + uploadId + " is missing "
+                    + (session.getTotalSize() - session.getReceivedBytes()) + " bytes");
+        }
+
+        // The assembled file is processed in place; there is no further copy
+        if (session.getTaskId() == null) {
+            String taskId = UUID.randomUUID().toString();
+            session.setTaskId(taskId);
+            if ("csv".equals(session.getType())) {
+                dataUploadService.uploadCsvToDatabase(taskId, session.getPath().toString(), duplicates, transforms);
+            } else {
+                dataProcessingService.processExcelToCsv(taskId, session.getPath().toString(), transforms);
+            }
+        }
+        sessions.remove(uploadId);
+        return status(session);
+    }
+
+    public void abort(String uploadId) throws IOException {
+        UploadSession session = session(uploadId);
+        sessions.remove(uploadId);
+        session.abort();
+        if (session.getTaskId() == null) {
+            Files.deleteIfExists(session.getPath());
+        }
+    }
+
+    // Synchronized with startProcessing and complete, so a session is never handed to a job as it expires
+    @Scheduled(fixedDelayString = "${upload.chunked.sweep-interval-ms:300000}")
+    public synchronized void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (UploadSession session : sessions.values()) {
+            if (!session.expireIfIdle(cutoff)) {
+                continue;
+            }
+            sessions.remove(session.getUploadId());
+            // A job reading the upload owns the file and fails on the abort
+            if (session.getTaskId() == null) {
+                try {
+                    Files.deleteIfExists(session.getPath());
+                } catch (IOException e) {
+                    log.warn("Could not delete expired upload {}: {}", session.getPath(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private UploadSession session(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new NoSuchElementException("Unknown upload " + uploadId);
+        }
+        return session;
+    }
+
+    private UploadStatusDTO status(UploadSession session) {
+        return UploadStatusDTO.builder()
+                .uploadId(session.getUploadId())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(session.getReceivedBytes())
+                .contiguousBytes(session.contiguousBytes())
+                .missingRanges(session.missingRanges())
+                .complete(session.isComplete())
+                .recommendedChunkSize(RECOMMENDED_CHUNK_SIZE)
+                .taskId(session.getTaskId())
+                .build();
+    }
+
+    private static String fileType(String fileName) {
+        String lower = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv")) return "csv";
+        if (lower.endsWith(".xlsx")) return "xlsx";
+        throw new IllegalArgumentException("Only .csv and .xlsx uploads are supported");
+    }
+}
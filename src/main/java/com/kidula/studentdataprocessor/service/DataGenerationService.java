@@ -1,5 +1,8 @@
 package com.kidula.studentdataprocessor.service;
 
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import com.kidula.studentdataprocessor.transform.TransformRow;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,26 +12,38 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
 
 @Service
 public class DataGenerationService {
     @Autowired
     private ProgressTracker progressTracker;
+    @Autowired
+    private JobControl jobControl;
+    @Autowired
+    private TransformCompiler transformCompiler;
     @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
     private String storagePath;
+    @Value("${transform.generate:score = random(55, 75)}")
+    private String defaultTransforms;
     private static final String[] CLASSES = {"Class1", "Class2", "Class3", "Class4", "Class5"};
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final LocalDate DOB_START = LocalDate.of(2000, 1, 1);
+    private static final LocalDate DOB_END = LocalDate.of(2010, 12, 31);
     private static final Random random = new Random();
     @Async
-    public void generateExcelData(String taskId, long numberOfRecords) {
+    public void generateExcelData(String taskId, long numberOfRecords, TransformChain transforms) {
 
         if (numberOfRecords > 1_048_575) {
             numberOfRecords = 1_048_575;
         }
         long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
+        long[] generated = {0};
         String fileName = "students_" + System.currentTimeMillis() + ".xlsx";
         String filePath = storagePath + fileName;
         try {
@@ -38,42 +53,73 @@ public class DataGenerationService {
             }
             File file = new File(filePath);
 
-            try (SXSSFWorkbook workbook = new SXSSFWorkbook(100);
-                 FileOutputStream fileOut = new FileOutputStream(file)) {
-                Sheet sheet = workbook.createSheet("Students");
-                // Create header row
-                Row headerRow = sheet.createRow(0);
-                String[] headers = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                }
+            try (FileOutputStream fileOut = new FileOutputStream(file)) {
+                long total = numberOfRecords;
                 int updateInterval = (int) Math.max(1, numberOfRecords / 100);
-                for (long i = 1; i <= numberOfRecords; i++) {
-                    Row row = sheet.createRow((int) i);
-                    row.createCell(0).setCellValue(i);
-                    row.createCell(1).setCellValue(generateRandomString(3, 8));
-                    row.createCell(2).setCellValue(generateRandomString(3, 8));
-                    row.createCell(3).setCellValue(generateRandomDate().toString());
-                    row.createCell(4).setCellValue(CLASSES[random.nextInt(CLASSES.length)]);
-                    row.createCell(5).setCellValue(random.nextInt(21) + 55);
+                writeWorkbook(fileOut, numberOfRecords, random,
+                        transforms == null ? transformCompiler.compile(defaultTransforms) : transforms, i -> {
+                    token.throwIfCancelled();
+                    generated[0] = i;
                     // Update progress periodically
-                    if (i % updateInterval == 0 || i == numberOfRecords) {
-                        progressTracker.updateProgress(taskId, i, numberOfRecords, startTime);
+                    if (i % updateInterval == 0 || i == total) {
+                        progressTracker.updateProgress(taskId, i, total, startTime);
                     }
-                }
-                workbook.write(fileOut);
+                });
                 fileOut.flush();
-                workbook.dispose();
 
                 progressTracker.completeProgress(taskId, numberOfRecords, startTime, filePath);
             }
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, generated[0], numberOfRecords, startTime);
+            new File(filePath).delete();
         } catch (Exception e) {
             progressTracker.failProgress(taskId, "Generation failed: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            jobControl.release(taskId);
+        }
+    }
+    /**
+     * Writes the generated sheet to out, calling onRow after each generated row. Rows start with a
+     * score of 0 and go through the transform chain, which sets the score and may drop them. The
+     * Random is a parameter so benchmarks can use a fixed seed; random() in the chain draws from it.
+     */
+    public void writeWorkbook(OutputStream out, long numberOfRecords, Random random, TransformChain transforms,
+                              LongConsumer onRow) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("Students");
+            // Create header row
+            Row headerRow = sheet.createRow(0);
+            String[] headers = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+            }
+            TransformRow values = new TransformRow(random);
+            int rowNum = 0;
+            for (long i = 1; i <= numberOfRecords; i++) {
+                String firstName = generateRandomString(random, 3, 8);
+                String lastName = generateRandomString(random, 3, 8);
+                LocalDate dob = generateRandomDate(random);
+                if (transforms.apply(values.set(i, CLASSES[random.nextInt(CLASSES.length)], 0))) {
+                    Row row = sheet.createRow(++rowNum);
+                    row.createCell(0).setCellValue(i);
+                    row.createCell(1).setCellValue(firstName);
+                    row.createCell(2).setCellValue(lastName);
+                    row.createCell(3).setCellValue(dob.toString());
+                    row.createCell(4).setCellValue(values.getStudentClass());
+                    row.createCell(5).setCellValue(values.getScore());
+                }
+                onRow.accept(i);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
-    private String generateRandomString(int min, int max) {
+    private String generateRandomString(Random random, int min, int max) {
         int length = random.nextInt(max - min + 1) + min;
         StringBuilder sb = new StringBuilder(length);
         for (int i = 0; i < length; i++) {
@@ -81,12 +127,9 @@ public class DataGenerationService {
         }
         return sb.toString();
     }
-    private LocalDate generateRandomDate() {
-        LocalDate start = LocalDate.of(2000, 1, 1);
-        LocalDate end = LocalDate.of(2010, 12, 31);
-        long startEpochDay = start.toEpochDay();
-        long endEpochDay = end.toEpochDay();
-        long randomDay = ThreadLocalRandom.current().nextLong(startEpochDay, endEpochDay + 1);
-        return LocalDate.ofEpochDay(randomDay);
+    private LocalDate generateRandomDate(Random random) {
+        long startEpochDay = DOB_START.toEpochDay();
+        long endEpochDay = DOB_END.toEpochDay();
+        return LocalDate.ofEpochDay(startEpochDay + random.nextInt((int) (endEpochDay - startEpochDay + 1)));
     }
 }
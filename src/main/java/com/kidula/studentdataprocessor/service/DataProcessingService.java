@@ -1,106 +1,168 @@
 package com.kidula.studentdataprocessor.service;
 
-import com.opencsv.CSVWriter;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import com.kidula.studentdataprocessor.transform.TransformRow;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.util.IOUtils;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.function.IntConsumer;
 
 @Service
 public class DataProcessingService {
     @Autowired
     private ProgressTracker progressTracker;
+    @Autowired
+    private JobControl jobControl;
+    @Autowired
+    private TransformCompiler transformCompiler;
     @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
     private String storagePath;
+    @Value("${transform.process:score = score + 10}")
+    private String defaultTransforms;
     @Async
-    public void processExcelToCsv(String taskId, String tempFilePath) {
+    public void processExcelToCsv(String taskId, String tempFilePath, TransformChain transforms) {
         long startTime = System.currentTimeMillis();
         String csvFileName = "students_" + System.currentTimeMillis() + ".csv";
         String csvFilePath = storagePath + csvFileName;
         File uploadedFile = new File(tempFilePath);
-        
+        CancellationToken token = jobControl.register(taskId);
+        long[] processedRows = {0};
+
         try {
             File directory = new File(storagePath);
             if (!directory.exists()) {
                 directory.mkdirs();
             }
 
-            try (OPCPackage pkg = OPCPackage.open(uploadedFile);
-                 CSVWriter csvWriter = new CSVWriter(new FileWriter(csvFilePath))) {
+            int totalRowsEstimate = 1000001; // Default for 1M + header
+            try (FileOutputStream csvOut = new FileOutputStream(csvFilePath)) {
+                convertToCsv(uploadedFile, csvOut,
+                        transforms == null ? transformCompiler.compile(defaultTransforms) : transforms, rowNum -> {
+                    token.throwIfCancelled();
+                    processedRows[0] = rowNum;
+                    // Update progress every 2000 rows for better real-time granularity
+                    if (rowNum % 2000 == 0) {
+                        progressTracker.updateProgress(taskId, rowNum, totalRowsEstimate, startTime);
+                    }
+                });
+            }
 
-                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
-                XSSFReader xssfReader = new XSSFReader(pkg);
-                StylesTable styles = xssfReader.getStylesTable();
-                XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            progressTracker.completeProgress(taskId, 1000000, startTime, csvFilePath);
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, processedRows[0], 1000000, startTime);
+            new File(csvFilePath).delete();
+        } catch (Exception e) {
+            progressTracker.failProgress(taskId, "Processing failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            jobControl.release(taskId);
+            if (uploadedFile.exists()) {
+                uploadedFile.delete();
+            }
+        }
+    }
+    /**
+     * Streams the first sheet of the workbook through SAX into CSV, running each data row through
+     * the transform chain; rows it filters out are not written, and rows whose score is not a
+     * number are copied unchanged. When the chain reads studentId, a row whose id is not a whole
+     * number fails the conversion with its row number. onRow is called before each row is written;
+     * it may throw to stop early.
+     */
+    public void convertToCsv(File xlsxFile, OutputStream out, TransformChain transforms, IntConsumer onRow) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(xlsxFile, PackageAccess.READ);
+             CsvWriter csvWriter = new CsvWriter(out)) {
 
-                if (iter.hasNext()) {
-                    try (InputStream sheetStream = iter.next()) {
-                        InputSource sheetSource = new InputSource(sheetStream);
-                        
-                        // Internal handler to bridge SAX events to CSV and Progress
-                        XSSFSheetXMLHandler.SheetContentsHandler sheetHandler = new XSSFSheetXMLHandler.SheetContentsHandler() {
-                            private int currentRow = -1;
-                            private String[] rowData = new String[6];
-                            private int totalRowsEstimate = 1000001; // Default for 1M + header
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            StylesTable styles = xssfReader.getStylesTable();
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
 
-                            @Override
-                            public void startRow(int rowNum) {
-                                currentRow = rowNum;
-                                for (int i = 0; i < 6; i++) rowData[i] = "";
-                            }
+            if (iter.hasNext()) {
+                try (InputStream sheetStream = iter.next()) {
+                    InputSource sheetSource = new InputSource(sheetStream);
+
+                    // Internal handler to bridge SAX events to CSV and Progress
+                    XSSFSheetXMLHandler.SheetContentsHandler sheetHandler = new XSSFSheetXMLHandler.SheetContentsHandler() {
+                        private String[] rowData = new String[6];
+                        private final TransformRow row = new TransformRow();
 
-                            @Override
-                            public void endRow(int rowNum) {
+                        @Override
+                        public void startRow(int rowNum) {
+                            for (int i = 0; i < 6; i++) rowData[i] = "";
+                        }
+
+                        @Override
+                        public void endRow(int rowNum) {
+                            onRow.accept(rowNum);
+                            try {
                                 if (rowNum == 0) {
-                                    csvWriter.writeNext(rowData); // Header
+                                    csvWriter.writeRow(rowData); // Header
                                 } else if (rowNum > 0) {
-                                    // Task Requirement: Score transformation (+10)
+                                    int score;
                                     try {
-                                        if (rowData[5] != null && !rowData[5].isEmpty()) {
-                                            int score = (int) Double.parseDouble(rowData[5]);
-                                            rowData[5] = String.valueOf(score + 10);
-                                        }
-                                    } catch (Exception e) {}
-                                    csvWriter.writeNext(rowData);
-                                }
-
-                                // Update progress every 2000 rows for better real-time granularity
-                                if (rowNum % 2000 == 0) {
-                                    progressTracker.updateProgress(taskId, rowNum, totalRowsEstimate, startTime);
+                                        score = (int) Double.parseDouble(rowData[5]);
+                                    } catch (NumberFormatException e) {
+                                        csvWriter.writeRow(rowData);
+                                        return;
+                                    }
+                                    row.set(transforms.readsStudentId() ? parseId(rowData[0], rowNum) : 0, rowData[4], score);
+                                    if (!transforms.apply(row)) {
+                                        return;
+                                    }
+                                    for (int i = 0; i < 4; i++) csvWriter.writeString(rowData[i]);
+                                    csvWriter.writeString(row.getStudentClass());
+                                    csvWriter.writeInt(row.getScore());
+                                    csvWriter.endRow();
                                 }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
                             }
+                        }
 
-                            @Override
-                            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
-                                int col = (new org.apache.poi.ss.util.CellReference(cellReference)).getCol();
-                                if (col < 6) rowData[col] = formattedValue;
-                            }                                                                                                                                                                                              
-                        };
+                        @Override
+                        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                            int col = (new org.apache.poi.ss.util.CellReference(cellReference)).getCol();
+                            if (col < 6) rowData[col] = formattedValue;
+                        }
+                    };
 
-                        XMLReader sheetParser = XMLHelper.newXMLReader();
-                        ContentHandler handler = new XSSFSheetXMLHandler(styles, strings, sheetHandler, false);
-                        sheetParser.setContentHandler(handler);
-                        sheetParser.parse(sheetSource);
-                    }
+                    XMLReader sheetParser = XMLHelper.newXMLReader();
+                    ContentHandler handler = new XSSFSheetXMLHandler(styles, strings, sheetHandler, false);
+                    sheetParser.setContentHandler(handler);
+                    sheetParser.parse(sheetSource);
                 }
             }
-
-            progressTracker.completeProgress(taskId, 1000000, startTime, csvFilePath);
-        } catch (Exception e) {
-            progressTracker.failProgress(taskId, "Processing failed: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            if (uploadedFile.exists()) {
-                uploadedFile.delete();
-            }
+        }
+    }
+    // A chain that reads studentId must not see a made-up one, so a bad id fails the conversion
+    private static long parseId(String value, int rowNum) {
+        try {
+            return new BigDecimal(value.trim()).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Row " + (rowNum + 1) + ": studentId '" + value + "' is not a whole number");
         }
     }
     private String getCellValueAsString(Cell cell) {
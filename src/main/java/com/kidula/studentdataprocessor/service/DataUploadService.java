@@ -1,82 +1,537 @@
 package com.kidula.studentdataprocessor.service;
 
+import com.kidula.studentdataprocessor.columnar.StudentColumnar;
+import com.kidula.studentdataprocessor.columnar.StudentColumnarReader;
+import com.kidula.studentdataprocessor.csv.CsvFormatException;
+import com.kidula.studentdataprocessor.csv.CsvReader;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.dto.Checkpoint;
+import com.kidula.studentdataprocessor.dto.ProgressDTO;
 import com.kidula.studentdataprocessor.entity.Student;
-import com.kidula.studentdataprocessor.repository.StudentRepository;
-import com.opencsv.CSVReader;
+import com.kidula.studentdataprocessor.index.LongIntHashMap;
+import com.kidula.studentdataprocessor.index.StudentIndexService;
+import com.kidula.studentdataprocessor.repository.StudentBulkWriter;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import com.kidula.studentdataprocessor.transform.TransformRow;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStreamReader;
-import java.time.LocalDate;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class DataUploadService {
 
     @Autowired
-    private StudentRepository studentRepository;
+    private StudentBulkWriter studentBulkWriter;
 
     @Autowired
     private ProgressTracker progressTracker;
 
+    @Autowired
+    private JobControl jobControl;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private StudentIndexService studentIndexService;
+
+    @Autowired
+    private StudentChangeLog studentChangeLog;
+
+    @Autowired
+    private TransformCompiler transformCompiler;
+
     private static final int BATCH_SIZE = 1000;
+    private static final int WRITE_QUEUE_BATCHES = 4;
+    private static final int AVERAGE_ROW_BYTES = 40;
+
+    @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
+    private String storagePath;
+
+    @Value("${ingest.invalid-rows.max-count:-1}")
+    private long maxInvalidRows;
+
+    @Value("${ingest.invalid-rows.max-rate:0.05}")
+    private double maxInvalidRate;
+
+    @Value("${ingest.invalid-rows.min-rows:1000}")
+    private long invalidRateMinRows;
+
+    @Value("${ingest.duplicates:REJECT}")
+    private DuplicatePolicy defaultDuplicatePolicy;
+
+    @Value("${transform.upload:score = score + 5}")
+    private String defaultTransforms;
+
+    /**
+     * One submitted batch: new rows, LAST_WINS rows overwriting rows of earlier batches, and the
+     * counters up to the batch's last row.
+     */
+    private record IngestBatch(List<Student> inserts, List<Student> replacements, long rowsRead,
+                               long rejectedRows, long duplicateRows) {
+    }
 
     @Async
+    public void uploadCsvToDatabase(String taskId, String tempFilePath, DuplicatePolicy duplicates,
+                                    TransformChain transforms) {
+        Checkpoint checkpoint = Checkpoint.builder()
+                .taskId(taskId)
+                .jobType(Checkpoint.UPLOAD_CSV)
+                .sourcePath(tempFilePath)
+                .duplicatePolicy(duplicates == null ? defaultDuplicatePolicy : duplicates)
+                .transforms(transforms(transforms).getSource())
+                .build();
+        runUpload(checkpoint, true, null, 0);
+    }
 
-    public void uploadCsvToDatabase(String taskId, String tempFilePath) {
-        long startTime = System.currentTimeMillis();
-        File csvFile = new File(tempFilePath);
+    /**
+     * Loads CSV rows from a stream that may still be arriving, e.g. the received prefix of a chunked
+     * upload. The complete file is expected at sourcePath afterwards so the job stays resumable.
+     */
+    @Async
+    public void uploadCsvStream(String taskId, String sourcePath, InputStream source, long estimatedRows,
+                                DuplicatePolicy duplicates, TransformChain transforms) {
+        Checkpoint checkpoint = Checkpoint.builder()
+                .taskId(taskId)
+                .jobType(Checkpoint.UPLOAD_CSV)
+                .sourcePath(sourcePath)
+                .duplicatePolicy(duplicates == null ? defaultDuplicatePolicy : duplicates)
+                .transforms(transforms(transforms).getSource())
+                .build();
+        runUpload(checkpoint, true, source, estimatedRows);
+    }
 
-        try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
+    /**
+     * Loads a columnar (.stc) file such as a columnar export. Rows go through the same validation,
+     * duplicate handling and checkpoints as a CSV upload, one row group at a time. The file holds
+     * rows this service exported, so transform.upload is not applied: without a requested chain the
+     * rows are loaded unchanged and an export/import round trip keeps the scores.
+     */
+    @Async
+    public void uploadColumnarToDatabase(String taskId, String tempFilePath, DuplicatePolicy duplicates,
+                                         TransformChain transforms) {
+        Checkpoint checkpoint = Checkpoint.builder()
+                .taskId(taskId)
+                .jobType(Checkpoint.UPLOAD_COLUMNAR)
+                .sourcePath(tempFilePath)
+                .duplicatePolicy(duplicates == null ? defaultDuplicatePolicy : duplicates)
+                .transforms(transforms == null ? "" : transforms.getSource())
+                .build();
+        runUpload(checkpoint, true, null, 0);
+    }
 
-            studentRepository.deleteAllInBatch();
+    @Async
+    public void resumeUpload(Checkpoint checkpoint) {
+        runUpload(checkpoint, false, null, 0);
+    }
 
-            reader.readNext(); // Skip header
-            List<Student> batch = new ArrayList<>();
-            String[] line;
-            long totalProcessed = 0;
+    /**
+     * Loads a CSV request body while it is still arriving. Rows are parsed straight from the stream
+     * and committed by the writer thread, so no temp file is written; the call returns once every
+     * row is committed.
+     */
+    public long ingestStream(String taskId, InputStream body, long contentLength, DuplicatePolicy duplicates,
+                             TransformChain transforms) throws Exception {
+        long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
+        long totalEstimate = contentLength > 0 ? contentLength / AVERAGE_ROW_BYTES : 1000000;
+        boolean loaded = false;
 
-            long totalLines = java.nio.file.Files.lines(csvFile.toPath()).count() - 1;
-            if (totalLines <= 0) totalLines = 1000000; // Fallback
+        datasetVersion.beginChange();
+        try {
+            partitionManager.truncateAll();
 
-            while ((line = reader.readNext()) != null) {
-                Student student = new Student(
-                        Long.parseLong(line[0]),
-                        line[1], line[2],
-                        LocalDate.parse(line[3]),
-                        line[4],
-                        Integer.parseInt(line[5]) + 5 // Task 3 Requirement (+5)
-                );
-                batch.add(student);
+            long totalProcessed;
+            try (RowSource rows = new CsvRowSource(body);
+                 RejectedRows rejected = rejectedRows(taskId, null)) {
+                totalProcessed = load(taskId, rows, null, duplicates == null ? defaultDuplicatePolicy : duplicates,
+                        transforms(transforms), rejected, totalEstimate, startTime, token);
+            }
+            studentChangeLog.recordLoad();
+            ProgressDTO progress = progressTracker.getProgress(taskId);
+            progressTracker.completeProgress(taskId, totalProcessed, startTime, "Success",
+                    progress.getErrorCount(), progress.getDuplicateCount());
+            loaded = true;
+            return totalProcessed;
 
-                if (batch.size() >= BATCH_SIZE) {
-                    saveBatch(batch); 
-                    batch.clear();
-                    totalProcessed += BATCH_SIZE;
-                    progressTracker.updateProgress(taskId, totalProcessed, totalLines, startTime);
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, progressTracker.getProgress(taskId).getCurrentRecords(),
+                    totalEstimate, startTime);
+            throw e;
+        } catch (Exception e) {
+            progressTracker.failProgress(taskId, e.getMessage());
+            throw e;
+        } finally {
+            datasetVersion.endChange();
+            jobControl.release(taskId);
+            if (loaded) {
+                studentIndexService.rebuildAsync();
+            }
+        }
+    }
+
+    private void runUpload(Checkpoint checkpoint, boolean freshLoad, InputStream source, long estimatedRows) {
+        String taskId = checkpoint.getTaskId();
+        long startTime = System.currentTimeMillis();
+        File sourceFile = new File(checkpoint.getSourcePath());
+        boolean columnar = Checkpoint.UPLOAD_COLUMNAR.equals(checkpoint.getJobType());
+        CancellationToken token = jobControl.register(taskId);
+        long totalLines = estimatedRows > 0 ? estimatedRows : 1000000; // Fallback
+        boolean loaded = false;
+
+        // Cached exports of the previous contents must not be served from here on
+        datasetVersion.beginChange();
+        try {
+            if (source == null && !columnar) {
+                try (Stream<String> lines = Files.lines(sourceFile.toPath())) {
+                    long counted = lines.count() - 1;
+                    if (counted > 0) totalLines = counted;
                 }
+                source = new FileInputStream(sourceFile);
+            }
+
+            // Only a fresh load wipes the table; a resume continues on top of the committed batches
+            if (freshLoad) {
+                partitionManager.truncateAll();
+                checkpointStore.save(checkpoint);
             }
-            if (!batch.isEmpty()) {
-                saveBatch(batch);
-                totalProcessed += batch.size();
+
+            // Checkpoints written before duplicate handling and transforms carry neither
+            DuplicatePolicy duplicates = checkpoint.getDuplicatePolicy() == null
+                    ? defaultDuplicatePolicy : checkpoint.getDuplicatePolicy();
+            TransformChain transforms = transformCompiler.compile(checkpoint.getTransforms() != null
+                    ? checkpoint.getTransforms() : columnar ? "" : defaultTransforms);
+            long totalProcessed;
+            try (RowSource rows = columnar
+                    ? new ColumnarRowSource(StudentColumnarReader.open(sourceFile.toPath()))
+                    : new CsvRowSource(source);
+                 RejectedRows rejected = rejectedRows(taskId, checkpoint)) {
+                if (rows.getRowCount() >= 0) totalLines = rows.getRowCount();
+                totalProcessed = load(taskId, rows, checkpoint, duplicates, transforms, rejected, totalLines,
+                        startTime, token);
             }
 
-            progressTracker.completeProgress(taskId, totalProcessed, startTime, "Success");
+            studentChangeLog.recordLoad();
+            progressTracker.completeProgress(taskId, totalProcessed, startTime, "Success",
+                    checkpoint.getRejectedRows(), checkpoint.getDuplicateRows());
+            checkpointStore.delete(taskId);
+            if (sourceFile.exists()) sourceFile.delete();
+            loaded = true;
 
+        } catch (JobCancelledException e) {
+            // The source file and checkpoint are kept so the job can be resumed
+            progressTracker.cancelProgress(taskId, checkpoint.getCommittedRows(), totalLines, startTime);
         } catch (Exception e) {
             progressTracker.failProgress(taskId, e.getMessage());
         } finally {
-            if (csvFile.exists()) csvFile.delete();
+            datasetVersion.endChange();
+            jobControl.release(taskId);
+            if (loaded) {
+                studentIndexService.rebuildAsync();
+            }
         }
     }
 
-    @Transactional // Only the small batch is transactional
-    public void saveBatch(List<Student> batch) {
-        studentRepository.saveAll(batch);
-        studentRepository.flush();
+    /**
+     * Parses and validates rows on the calling thread and commits them in batches on a BatchWriter
+     * thread, so parsing and inserting overlap. Invalid rows go to the dead-letter file instead of
+     * failing the load. Valid rows go through the transform chain, which may drop them; repeated
+     * studentIds among the rest are resolved by the DuplicatePolicy before
+     * they reach the unique index: the first row number of every studentId is kept in a
+     * LongIntHashMap, so no lookups go to the database. Returns the number of rows read, valid or
+     * not, including skipped ones.
+     */
+    private long load(String taskId, RowSource rows, Checkpoint checkpoint, DuplicatePolicy policy,
+                      TransformChain transforms, RejectedRows rejected, long totalEstimate, long startTime,
+                      CancellationToken token) throws Exception {
+        long skipRows = checkpoint == null ? 0 : checkpoint.getCommittedRows();
+
+        BatchWriter<IngestBatch> writer = new BatchWriter<>("IngestWriter-" + taskId, WRITE_QUEUE_BATCHES, batch -> {
+            studentBulkWriter.insert(batch.inserts());
+            // The rows being replaced were inserted by this or an earlier batch
+            studentBulkWriter.update(batch.replacements());
+            if (checkpoint != null) {
+                checkpoint.setCommittedRows(batch.rowsRead());
+                checkpoint.setRejectedRows(batch.rejectedRows());
+                checkpoint.setDuplicateRows(batch.duplicateRows());
+                checkpointStore.save(checkpoint);
+            }
+            progressTracker.updateProgress(taskId, batch.rowsRead(), totalEstimate, startTime,
+                    batch.rejectedRows(), batch.duplicateRows());
+        });
+
+        // The estimate is only a guess from the content length; start small and let the map grow
+        LongIntHashMap firstRow = new LongIntHashMap((int) Math.min(totalEstimate, 1 << 16));
+        long duplicates = checkpoint == null ? 0 : checkpoint.getDuplicateRows();
+        long rowsRead = skipRows;
+        TransformRow row = new TransformRow();
+        try {
+            for (long skipped = 0; skipped < skipRows; skipped++) {
+                token.throwIfCancelled();
+                rows.next();
+                // Committed rows still count as seen
+                Student student = rows.readIfValid();
+                if (student != null && transforms.apply(student, row)) {
+                    firstRow.putIfAbsent(student.getStudentId(), rowNumber(rows));
+                }
+            }
+
+            List<Student> batch = new ArrayList<>(BATCH_SIZE);
+            List<Student> replacements = new ArrayList<>();
+            long submittedRow = rows.getRowNumber();
+            while (rows.next()) {
+                token.throwIfCancelled();
+                rowsRead++;
+                Student student = rows.read(rejected);
+                if (student == null) {
+                    rejected.checkLimits(rowsRead);
+                    continue;
+                }
+                if (!transforms.apply(student, row)) {
+                    continue;
+                }
+
+                int seenRow = firstRow.putIfAbsent(student.getStudentId(), rowNumber(rows));
+                if (seenRow >= 0) {
+                    duplicates++;
+                    if (policy == DuplicatePolicy.REJECT) {
+                        rows.reject(rejected, "Duplicate student id " + student.getStudentId()
+                                + " (first seen on line " + seenRow + ")");
+                        rejected.checkLimits(rowsRead);
+                    } else if (policy == DuplicatePolicy.LAST_WINS) {
+                        if (seenRow > submittedRow) {
+                            replaceInBatch(batch, student);
+                        } else {
+                            replacements.add(student);
+                        }
+                    }
+                    continue;
+                }
+                batch.add(student);
+
+                if (batch.size() >= BATCH_SIZE) {
+                    writer.submit(new IngestBatch(batch, replacements, rowsRead, rejected.getCount(), duplicates));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    replacements = new ArrayList<>();
+                    submittedRow = rows.getRowNumber();
+                }
+            }
+            // Always sent, so the final counters reach the checkpoint and the progress
+            writer.submit(new IngestBatch(batch, replacements, rowsRead, rejected.getCount(), duplicates));
+            writer.finish();
+        } catch (Exception e) {
+            writer.abort();
+            throw e;
+        }
+        return rowsRead;
+    }
+
+    // LongIntHashMap stores row numbers as int
+    private static int rowNumber(RowSource rows) {
+        long rowNumber = rows.getRowNumber();
+        if (rowNumber > Integer.MAX_VALUE) {
+            throw new IngestRejectedException("Uploads are limited to " + Integer.MAX_VALUE + " rows");
+        }
+        return (int) rowNumber;
+    }
+
+    // The pending batch holds at most one row per studentId
+    private void replaceInBatch(List<Student> batch, Student student) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (batch.get(i).getStudentId().equals(student.getStudentId())) {
+                batch.set(i, student);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The rows of one upload. getRowNumber() is what the dead-letter file and duplicate messages
+     * report: the line in a CSV, the row in a columnar file.
+     */
+    private interface RowSource extends Closeable {
+
+        boolean next() throws IOException;
+
+        long getRowNumber();
+
+        // Total rows when the source knows them up front, otherwise -1
+        long getRowCount();
+
+        // The current row, or null after rejecting it
+        Student read(RejectedRows rejected) throws IOException;
+
+        // The current row, or null if read() would reject it
+        Student readIfValid();
+
+        void reject(RejectedRows rejected, String reason) throws IOException;
+    }
+
+    private static final class CsvRowSource implements RowSource {
+
+        private final CsvReader reader;
+
+        CsvRowSource(InputStream source) throws IOException {
+            reader = new CsvReader(source);
+            reader.next(); // Skip header
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            return reader.next();
+        }
+
+        @Override
+        public long getRowNumber() {
+            return reader.getRowNumber();
+        }
+
+        @Override
+        public long getRowCount() {
+            return -1;
+        }
+
+        // The field count and blank fields are checked on the row's bounds before anything is parsed;
+        // a field that does not parse is rejected the same way
+        @Override
+        public Student read(RejectedRows rejected) throws IOException {
+            String reason = StudentCsv.check(reader);
+            if (reason == null) {
+                try {
+                    return StudentCsv.read(reader);
+                } catch (CsvFormatException | DateTimeException e) {
+                    reason = e.getMessage();
+                }
+            }
+            rejected.reject(reader, reason);
+            return null;
+        }
+
+        @Override
+        public Student readIfValid() {
+            if (StudentCsv.check(reader) != null) {
+                return null;
+            }
+            try {
+                return StudentCsv.read(reader);
+            } catch (CsvFormatException | DateTimeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void reject(RejectedRows rejected, String reason) throws IOException {
+            rejected.reject(reader, reason);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decodes one row group at a time. The columns are typed, so only blank text fields can be
+     * invalid; a rejected row is written to the dead-letter file as it stands after the transforms.
+     */
+    private static final class ColumnarRowSource implements RowSource {
+
+        private final StudentColumnarReader reader;
+        private final Iterator<StudentColumnar.RowGroup> groups;
+        private List<Student> group = List.of();
+        private int index;
+        private long rowNumber;
+        private Student current;
+
+        ColumnarRowSource(StudentColumnarReader reader) {
+            this.reader = reader;
+            this.groups = reader.getRowGroups().iterator();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (index == group.size()) {
+                if (!groups.hasNext()) {
+                    return false;
+                }
+                group = reader.readRowGroup(groups.next());
+                index = 0;
+            }
+            current = group.get(index++);
+            rowNumber++;
+            return true;
+        }
+
+        @Override
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public long getRowCount() {
+            return reader.getRowCount();
+        }
+
+        @Override
+        public Student read(RejectedRows rejected) throws IOException {
+            if (readIfValid() == null) {
+                reject(rejected, "Missing name or class");
+                return null;
+            }
+            return current;
+        }
+
+        @Override
+        public Student readIfValid() {
+            if (current.getFirstName().isEmpty() || current.getLastName().isEmpty()
+                    || current.getStudentClass().isEmpty()) {
+                return null;
+            }
+            return current;
+        }
+
+        @Override
+        public void reject(RejectedRows rejected, String reason) throws IOException {
+            rejected.reject(rowNumber, reason, String.valueOf(current.getStudentId()), current.getFirstName(),
+                    current.getLastName(), String.valueOf(current.getDob()), current.getStudentClass(),
+                    String.valueOf(current.getScore()));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private TransformChain transforms(TransformChain requested) {
+        return requested == null ? transformCompiler.compile(defaultTransforms) : requested;
+    }
+
+    private RejectedRows rejectedRows(String taskId, Checkpoint checkpoint) {
+        // A resume appends; rows after the last checkpoint may then be listed twice
+        boolean resume = checkpoint != null && checkpoint.getCommittedRows() > 0;
+        return new RejectedRows(Paths.get(storagePath, "dead-letter", taskId + ".csv"), resume,
+                resume ? checkpoint.getRejectedRows() : 0, maxInvalidRows, maxInvalidRate, invalidRateMinRows);
     }
 }
@@ -0,0 +1,78 @@
+package com.kidula.studentdataprocessor.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the students table contents. Every load bumps it when it starts touching the
+ * table (beginChange) and again when it stops (endChange), so anything derived from a version
+ * (cached exports, snapshots) is never reused across a change. Persisted so restarts do not reuse
+ * old numbers; the count of running loads is not, as none survives a restart.
+ */
+@Service
+public class DatasetVersion {
+
+    @Value("${file.storage.path:C:/var/log/applications/API/dataprocessing/}")
+    private String storagePath;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger changing = new AtomicInteger();
+
+    @PostConstruct
+    public void load() throws IOException {
+        Path file = versionFile();
+        if (Files.exists(file)) {
+            version.set(Long.parseLong(Files.readString(file).trim()));
+        }
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * True while a load may be touching the table. Read the version first: a load that ends in
+     * between then shows up as a changed version.
+     */
+    public boolean isChanging() {
+        return changing.get() > 0;
+    }
+
+    public long beginChange() {
+        changing.incrementAndGet();
+        return increment();
+    }
+
+    // Must pair with beginChange, also when the load fails
+    public long endChange() {
+        try {
+            return increment();
+        } finally {
+            changing.decrementAndGet();
+        }
+    }
+
+    private synchronized long increment() {
+        long next = version.incrementAndGet();
+        try {
+            Files.createDirectories(versionFile().getParent());
+            Files.writeString(versionFile(), Long.toString(next));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist dataset version " + next, e);
+        }
+        return next;
+    }
+
+    private Path versionFile() {
+        return Paths.get(storagePath, "dataset.version");
+    }
+}
@@ -0,0 +1,24 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.util.Locale;
+
+/**
+ * What an upload does with a row whose studentId already appeared earlier in the same file.
+ */
+public enum DuplicatePolicy {
+    FIRST_WINS, // later rows are skipped
+    LAST_WINS,  // later rows overwrite the stored row
+    REJECT;     // later rows go to the dead-letter file like invalid rows
+
+    // Null when no policy was requested
+    public static DuplicatePolicy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown duplicate policy: " + value);
+        }
+    }
+}
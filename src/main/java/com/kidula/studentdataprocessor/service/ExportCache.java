@@ -0,0 +1,227 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.dto.Checkpoint;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of generated export files keyed by format, filter and dataset version. Files are named
+ * {version}-{hash}.{format} (e.g. csv or csv.gz), entries are kept in LRU order and evicted once the cache exceeds its
+ * byte budget. Entries of older dataset versions can never be hit again and are evicted first.
+ */
+@Service
+public class ExportCache {
+
+    private static final Pattern ARTIFACT_ID = Pattern.compile("(\\d+-[0-9a-f]{32})(?:\\.([a-z.]+))?");
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Value("${export.cache.path:${file.storage.path:C:/var/log/applications/API/dataprocessing/}export-cache/}")
+    private String cachePath;
+
+    @Value("${export.cache.max-bytes:2147483648}")
+    private long maxBytes;
+
+    private final LinkedHashMap<String, CachedExport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @PostConstruct
+    public void loadExisting() throws IOException {
+        Path directory = Files.createDirectories(Paths.get(cachePath));
+        try (Stream<Path> files = Files.list(directory)) {
+            // Oldest first, so the restored access order approximates the previous LRU order
+            files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(file -> file.toFile().lastModified()))
+                    .forEach(this::restore);
+        }
+        clearWorkFiles();
+    }
+
+    public synchronized Optional<CachedExport> lookup(String format, Long studentId, String studentClass) {
+        String key = key(datasetVersion.current(), format, studentId, studentClass);
+        CachedExport entry = entries.get(key);
+        if (entry != null && !Files.exists(entry.path())) {
+            remove(key);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Resolves a download by artifact id (the cache key, optionally followed by its extension).
+     * Only indexed entries inside the cache directory are returned, never arbitrary paths.
+     */
+    public synchronized Optional<CachedExport> findArtifact(String artifactId) {
+        Matcher matcher = ARTIFACT_ID.matcher(artifactId);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        Path directory = Paths.get(cachePath).toAbsolutePath().normalize();
+        return Optional.ofNullable(entries.get(matcher.group(1)))
+                .filter(entry -> matcher.group(2) == null || matcher.group(2).equals(entry.format()))
+                .filter(entry -> entry.path().toAbsolutePath().normalize().getParent().equals(directory))
+                .filter(entry -> Files.isRegularFile(entry.path()));
+    }
+
+    /**
+     * Scratch file for an export in progress. It lives next to the cache so that storing the
+     * finished file is a rename rather than a copy.
+     */
+    public Path newWorkFile(String format) throws IOException {
+        Path workDirectory = Files.createDirectories(Paths.get(cachePath, "work"));
+        return Files.createTempFile(workDirectory, "export", "." + format);
+    }
+
+    /**
+     * Deletes a work file that did not make it into the cache. A no-op once store() has moved it,
+     * so exports call it in finally.
+     */
+    public void deleteWorkFile(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Moves a finished export into the cache under the dataset version it was generated from.
+     */
+    public synchronized CachedExport store(String format, Long studentId, String studentClass,
+                                           long version, Path file) throws IOException {
+        String key = key(version, format, studentId, studentClass);
+        Path target = Paths.get(cachePath, key + "." + format);
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        return put(new CachedExport(key, version, format, target, Files.size(target)));
+    }
+
+    public CachedExport store(String format, Long studentId, String studentClass,
+                              long version, byte[] data) throws IOException {
+        Path tempFile = newWorkFile(format);
+        try {
+            Files.write(tempFile, data);
+            return store(format, studentId, studentClass, version, tempFile);
+        } finally {
+            deleteWorkFile(tempFile);
+        }
+    }
+
+    private CachedExport put(CachedExport entry) {
+        CachedExport previous = entries.put(entry.key(), entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+        totalBytes += entry.size();
+        evict(entry.key());
+        return entry;
+    }
+
+    private void evict(String keep) {
+        long current = datasetVersion.current();
+        entries.values().removeIf(entry -> {
+            if (entry.datasetVersion() >= current || entry.key().equals(keep)) {
+                return false;
+            }
+            deleteFile(entry);
+            return true;
+        });
+
+        Iterator<Map.Entry<String, CachedExport>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            CachedExport entry = eldest.next().getValue();
+            if (entry.key().equals(keep)) {
+                continue;
+            }
+            eldest.remove();
+            deleteFile(entry);
+        }
+    }
+
+    private void remove(String key) {
+        CachedExport entry = entries.remove(key);
+        if (entry != null) {
+            deleteFile(entry);
+        }
+    }
+
+    private void deleteFile(CachedExport entry) {
+        totalBytes -= entry.size();
+        try {
+            Files.deleteIfExists(entry.path());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Nothing runs before startup, so work files are left over from exports killed by a restart.
+    // Only a resumable PDF export still needs its target and finished segments (target.partN).
+    private void clearWorkFiles() throws IOException {
+        Path workDirectory = Paths.get(cachePath, "work");
+        if (!Files.isDirectory(workDirectory)) {
+            return;
+        }
+        List<String> resumable = checkpointStore.loadAll().stream()
+                .filter(checkpoint -> Checkpoint.EXPORT_PDF.equals(checkpoint.getJobType()))
+                .map(Checkpoint::getTargetPath)
+                .filter(Objects::nonNull)
+                .map(path -> Paths.get(path).toAbsolutePath().normalize().toString())
+                .toList();
+        try (Stream<Path> files = Files.list(workDirectory)) {
+            files.filter(file -> {
+                String path = file.toAbsolutePath().normalize().toString();
+                return resumable.stream().noneMatch(target -> path.equals(target) || path.startsWith(target + ".part"));
+            }).forEach(this::deleteWorkFile);
+        }
+    }
+
+    private void restore(Path file) {
+        String fileName = file.getFileName().toString();
+        int dash = fileName.indexOf('-');
+        int dot = fileName.indexOf('.');
+        if (dash <= 0 || dot <= dash) {
+            return;
+        }
+        try {
+            long version = Long.parseLong(fileName.substring(0, dash));
+            CachedExport entry = new CachedExport(fileName.substring(0, dot), version,
+                    fileName.substring(dot + 1), file, Files.size(file));
+            entries.put(entry.key(), entry);
+            totalBytes += entry.size();
+        } catch (NumberFormatException | IOException e) {
+            // Not a cache entry (e.g. an interrupted temp file); leave it alone
+        }
+    }
+
+    private static String key(long version, String format, Long studentId, String studentClass) {
+        String classKey = studentClass == null || studentClass.isEmpty() ? "" : studentClass;
+        String filter = format + "|" + (studentId == null ? "" : studentId) + "|" + classKey;
+        return version + "-" + DigestUtils.md5DigestAsHex(filter.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,30 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.util.Locale;
+
+public enum ExportCompression {
+    NONE(0),
+    GZIP(6),
+    FAST(1); // gzip-compatible output at the fastest deflate level
+
+    private final int level;
+
+    ExportCompression(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String format(String baseFormat) {
+        return this == NONE ? baseFormat : baseFormat + ".gz";
+    }
+
+    public static ExportCompression parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
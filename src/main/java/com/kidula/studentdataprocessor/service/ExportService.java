@@ -1,28 +1,29 @@
 package com.kidula.studentdataprocessor.service;
 
+import com.kidula.studentdataprocessor.columnar.StudentColumnar;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.dto.Checkpoint;
 import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.repository.StudentRangeReader;
 import com.kidula.studentdataprocessor.repository.StudentRepository;
-import com.opencsv.CSVWriter;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
 @Service
 public class ExportService {
@@ -30,16 +31,100 @@ public class ExportService {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private StudentRangeReader rangeReader;
+
     @Autowired
     private ProgressTracker progressTracker;
 
-    private static final int BATCH_SIZE = 10000;
+    @Autowired
+    private JobControl jobControl;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private PdfExportEngine pdfExportEngine;
+
+    @Autowired
+    private ExportCache exportCache;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private ParallelExportEngine parallelExportEngine;
+
+    @Autowired
+    private StudentChangeLog studentChangeLog;
+
+    @Autowired
+    @Qualifier("compressionExecutor")
+    private Executor compressionExecutor;
+
+    /**
+     * Returns the cached export for the current dataset version, generating and caching it on a miss.
+     * These exports read the live table, so while a load runs, or when one starts during generation,
+     * an IllegalStateException is thrown instead of caching a half-loaded table; the caller retries.
+     */
+    public CachedExport exportCached(String format, ExportCompression compression,
+                                     Long studentId, String studentClass) throws Exception {
+        long version = datasetVersion.current();
+        if (datasetVersion.isChanging()) {
+            throw new IllegalStateException("A load is running, retry the export when it completes");
+        }
+        String cacheFormat = compression.format(format);
+        Optional<CachedExport> cached = exportCache.lookup(cacheFormat, studentId, studentClass);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        byte[] data = switch (format) {
+            case "xlsx" -> exportToExcel(studentId, studentClass);
+            case "csv" -> exportToCsv(studentId, studentClass);
+            case "pdf" -> exportToPdf(studentId, studentClass);
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        };
+        if (datasetVersion.current() != version) {
+            throw new IllegalStateException("The students changed during the export, retry it");
+        }
+        if (compression == ExportCompression.NONE) {
+            return exportCache.store(format, studentId, studentClass, version, data);
+        }
+
+        Path filePath = exportCache.newWorkFile(cacheFormat);
+        try {
+            try (OutputStream out = compressed(new FileOutputStream(filePath.toFile()), compression)) {
+                out.write(data);
+            }
+            return exportCache.store(cacheFormat, studentId, studentClass, version, filePath);
+        } finally {
+            exportCache.deleteWorkFile(filePath);
+        }
+    }
 
     public byte[] exportToExcel(Long studentId, String studentClass) throws Exception {
-        List<Student> students = getFilteredStudents(studentId, studentClass);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        renderExcel(getFilteredStudents(studentId, studentClass), outputStream);
+        return outputStream.toByteArray();
+    }
 
-        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100);
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+    public byte[] exportToCsv(Long studentId, String studentClass) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        renderCsv(getFilteredStudents(studentId, studentClass), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    public byte[] exportToPdf(Long studentId, String studentClass) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        renderPdf(getFilteredStudents(studentId, studentClass), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    // The render methods only format rows, so they can be benchmarked without a database
+
+    public void renderExcel(List<Student> students, OutputStream out) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100)) {
 
             Sheet sheet = workbook.createSheet("Students");
             createExcelHeader(sheet);
@@ -50,343 +135,218 @@ public class ExportService {
                 fillExcelRow(row, student);
             }
 
-            workbook.write(outputStream);
+            workbook.write(out);
             workbook.dispose();
-            return outputStream.toByteArray();
         }
     }
 
-    public byte[] exportToCsv(Long studentId, String studentClass) throws Exception {
-        List<Student> students = getFilteredStudents(studentId, studentClass);
-
-        StringWriter stringWriter = new StringWriter();
-        try (CSVWriter csvWriter = new CSVWriter(stringWriter)) {
+    public void renderCsv(List<Student> students, OutputStream out) throws IOException {
+        try (CsvWriter csvWriter = new CsvWriter(out)) {
 
             // Header
-            String[] header = {"Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
-            csvWriter.writeNext(header);
+            csvWriter.writeRow(StudentCsv.EXPORT_HEADER);
 
             // Data
             for (Student student : students) {
-                String[] data = {
-                        student.getStudentId().toString(),
-                        student.getFirstName(),
-                        student.getLastName(),
-                        student.getDob().toString(),
-                        student.getStudentClass(),
-                        student.getScore().toString()
-                };
-                csvWriter.writeNext(data);
+                StudentCsv.write(csvWriter, student);
             }
         }
-
-        return stringWriter.toString().getBytes();
     }
 
-    public byte[] exportToPdf(Long studentId, String studentClass) throws Exception {
-        List<Student> students = getFilteredStudents(studentId, studentClass);
-
-        try (PDDocument document = new PDDocument();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-
-            // Title
-            contentStream.beginText();
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 16);
-            contentStream.newLineAtOffset(220, 800);
-            contentStream.showText("Student Report");
-            contentStream.endText();
-
-            // Table header
-            float yPosition = 750;
-            float margin = 50;
-            float tableWidth = page.getMediaBox().getWidth() - 2 * margin;
-            float rowHeight = 20;
-
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 10);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("ID");
-            contentStream.newLineAtOffset(50, 0);
-            contentStream.showText("First Name");
-            contentStream.newLineAtOffset(80, 0);
-            contentStream.showText("Last Name");
-            contentStream.newLineAtOffset(80, 0);
-            contentStream.showText("DOB");
-            contentStream.newLineAtOffset(80, 0);
-            contentStream.showText("Class");
-            contentStream.newLineAtOffset(60, 0);
-            contentStream.showText("Score");
-            contentStream.endText();
-
-            yPosition -= rowHeight;
-
-            // Draw line
-            contentStream.moveTo(margin, yPosition);
-            contentStream.lineTo(page.getMediaBox().getWidth() - margin, yPosition);
-            contentStream.stroke();
-
-            yPosition -= 10;
-
-            // Table data
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9);
-
-            int recordsPerPage = 30;
-            int recordCount = 0;
+    public void renderPdf(List<Student> students, OutputStream out) throws IOException {
+        try (StudentPdfWriter writer = new StudentPdfWriter(true)) {
 
             for (Student student : students) {
-                if (recordCount >= recordsPerPage) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    yPosition = 780;
-                    recordCount = 0;
-                    contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9);
-                }
-
-                contentStream.beginText();
-                contentStream.newLineAtOffset(margin, yPosition);
-                contentStream.showText(String.valueOf(student.getStudentId()));
-                contentStream.newLineAtOffset(50, 0);
-                contentStream.showText(truncate(student.getFirstName(), 10));
-                contentStream.newLineAtOffset(80, 0);
-                contentStream.showText(truncate(student.getLastName(), 10));
-                contentStream.newLineAtOffset(80, 0);
-                contentStream.showText(student.getDob().toString());
-                contentStream.newLineAtOffset(80, 0);
-                contentStream.showText(student.getStudentClass());
-                contentStream.newLineAtOffset(60, 0);
-                contentStream.showText(String.valueOf(student.getScore()));
-                contentStream.endText();
-
-                yPosition -= rowHeight;
-                recordCount++;
+                writer.writeRow(student);
             }
 
-            contentStream.close();
-            document.save(outputStream);
+            writer.save(out);
+        }
+    }
 
-            return outputStream.toByteArray();
+    /**
+     * Writes the rows changed after sinceVersion up to untilVersion as CSV (see StudentChangeLog).
+     */
+    public long exportChanges(long sinceVersion, long untilVersion, ExportCompression compression,
+                              OutputStream out) throws IOException {
+        try (OutputStream target = compressed(out, compression)) {
+            return studentChangeLog.writeChangesCsv(sinceVersion, untilVersion, target);
         }
     }
 
+    public long latestChangeVersion() {
+        return studentChangeLog.latestVersion();
+    }
+
     @Async
     public void exportAllToExcel(String taskId) {
         long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
+        long processedRecords = 0;
+        long totalRecords = 0;
+        Path filePath = null;
 
         try {
-            long totalRecords = studentRepository.count();
-            int totalPages = (int) Math.ceil((double) totalRecords / BATCH_SIZE);
-
-            try (SXSSFWorkbook workbook = new SXSSFWorkbook(100)) {
-                Sheet sheet = workbook.createSheet("Students");
-                createExcelHeader(sheet);
-
-                int rowNum = 1;
-                long processedRecords = 0;
+            totalRecords = rangeReader.count();
+            if (completeFromCache(taskId, "xlsx", totalRecords, startTime)) {
+                return;
+            }
+            filePath = exportCache.newWorkFile("xlsx");
+            ParallelExportEngine.ExportResult result =
+                    parallelExportEngine.writeXlsx(filePath, taskId, token, totalRecords, startTime);
+            processedRecords = result.rows();
 
-                for (int page = 0; page < totalPages; page++) {
-                    Pageable pageable = PageRequest.of(page, BATCH_SIZE);
-                    Page<Student> studentPage = studentRepository.findAll(pageable);
+            CachedExport export = exportCache.store("xlsx", null, null, result.datasetVersion(), filePath);
+            progressTracker.completeProgress(taskId, processedRecords, startTime, export);
 
-                    for (Student student : studentPage.getContent()) {
-                        Row row = sheet.createRow(rowNum++);
-                        fillExcelRow(row, student);
-                        processedRecords++;
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, processedRecords, totalRecords, startTime);
+        } catch (Exception e) {
+            progressTracker.failProgress(taskId, e.getMessage());
+            e.printStackTrace();
+        } finally {
+            exportCache.deleteWorkFile(filePath); // no-op once stored
+            jobControl.release(taskId);
+        }
+    }
 
-                        if (processedRecords % 10000 == 0) {
-                            progressTracker.updateProgress(taskId, processedRecords,
-                                    totalRecords, startTime);
-                        }
-                    }
-                }
+    @Async
+    public void exportAllToCsv(String taskId, ExportCompression compression) {
+        long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
+        long processedRecords = 0;
+        long totalRecords = 0;
+        String format = compression.format("csv");
+        Path filePath = null;
 
-                String fileName = "all_students_" + System.currentTimeMillis() + ".xlsx";
-                String filePath = System.getProperty("java.io.tmpdir") + fileName;
+        try {
+            totalRecords = rangeReader.count();
+            if (completeFromCache(taskId, format, totalRecords, startTime)) {
+                return;
+            }
+            filePath = exportCache.newWorkFile(format);
+            OutputStream fileOut = compressed(new FileOutputStream(filePath.toFile()), compression);
+            ParallelExportEngine.ExportResult result;
 
-                try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-                    workbook.write(fileOut);
-                }
+            try (CsvWriter csvWriter = new CsvWriter(fileOut)) {
 
-                workbook.dispose();
-                progressTracker.completeProgress(taskId, totalRecords, startTime, filePath);
+                // Header, then the id ranges in order
+                csvWriter.writeRow(StudentCsv.EXPORT_HEADER);
+                csvWriter.flush();
+                result = parallelExportEngine.writeCsv(fileOut, taskId, token, totalRecords, startTime);
+                processedRecords = result.rows();
             }
 
+            CachedExport export = exportCache.store(format, null, null, result.datasetVersion(), filePath);
+            progressTracker.completeProgress(taskId, processedRecords, startTime, export);
+
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, processedRecords, totalRecords, startTime);
         } catch (Exception e) {
             progressTracker.failProgress(taskId, e.getMessage());
             e.printStackTrace();
+        } finally {
+            exportCache.deleteWorkFile(filePath); // no-op once stored
+            jobControl.release(taskId);
         }
     }
 
     @Async
-    public void exportAllToCsv(String taskId) {
+    public void exportAllToColumnar(String taskId) {
         long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
+        long processedRecords = 0;
+        long totalRecords = 0;
+        String format = StudentColumnar.EXTENSION;
+        Path filePath = null;
 
         try {
-            long totalRecords = studentRepository.count();
-            int totalPages = (int) Math.ceil((double) totalRecords / BATCH_SIZE);
-
-            String fileName = "all_students_" + System.currentTimeMillis() + ".csv";
-            String filePath = System.getProperty("java.io.tmpdir") + fileName;
-
-            try (CSVWriter csvWriter = new CSVWriter(new FileWriter(filePath))) {
-
-                // Header
-                String[] header = {"Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
-                csvWriter.writeNext(header);
-
-                long processedRecords = 0;
-
-                for (int page = 0; page < totalPages; page++) {
-                    Pageable pageable = PageRequest.of(page, BATCH_SIZE);
-                    Page<Student> studentPage = studentRepository.findAll(pageable);
-
-                    for (Student student : studentPage.getContent()) {
-                        String[] data = {
-                                student.getStudentId().toString(),
-                                student.getFirstName(),
-                                student.getLastName(),
-                                student.getDob().toString(),
-                                student.getStudentClass(),
-                                student.getScore().toString()
-                        };
-                        csvWriter.writeNext(data);
-                        processedRecords++;
-
-                        if (processedRecords % 10000 == 0) {
-                            progressTracker.updateProgress(taskId, processedRecords,
-                                    totalRecords, startTime);
-                        }
-                    }
-                }
-
-                progressTracker.completeProgress(taskId, totalRecords, startTime, filePath);
+            totalRecords = rangeReader.count();
+            if (completeFromCache(taskId, format, totalRecords, startTime)) {
+                return;
             }
+            filePath = exportCache.newWorkFile(format);
+            ParallelExportEngine.ExportResult result;
+            try (OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(filePath.toFile()), 1 << 16)) {
+                result = parallelExportEngine.writeColumnar(fileOut, taskId, token, totalRecords, startTime);
+                processedRecords = result.rows();
+            }
+
+            CachedExport export = exportCache.store(format, null, null, result.datasetVersion(), filePath);
+            progressTracker.completeProgress(taskId, processedRecords, startTime, export);
 
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, processedRecords, totalRecords, startTime);
         } catch (Exception e) {
             progressTracker.failProgress(taskId, e.getMessage());
             e.printStackTrace();
+        } finally {
+            exportCache.deleteWorkFile(filePath); // no-op once stored
+            jobControl.release(taskId);
         }
     }
 
     @Async
     public void exportAllToPdf(String taskId) {
+        Checkpoint checkpoint;
+        try {
+            if (completeFromCache(taskId, "pdf", rangeReader.count(), System.currentTimeMillis())) {
+                return;
+            }
+            checkpoint = Checkpoint.builder()
+                    .taskId(taskId)
+                    .jobType(Checkpoint.EXPORT_PDF)
+                    .targetPath(exportCache.newWorkFile("pdf").toString())
+                    .datasetVersion(datasetVersion.current())
+                    .build();
+        } catch (Exception e) {
+            progressTracker.failProgress(taskId, e.getMessage());
+            return;
+        }
+        runPdfExport(checkpoint);
+    }
+
+    @Async
+    public void resumeExportToPdf(Checkpoint checkpoint) {
+        runPdfExport(checkpoint);
+    }
+
+    private void runPdfExport(Checkpoint checkpoint) {
+        String taskId = checkpoint.getTaskId();
         long startTime = System.currentTimeMillis();
+        CancellationToken token = jobControl.register(taskId);
 
         try {
-            long totalRecords = studentRepository.count();
-            int totalPages = (int) Math.ceil((double) totalRecords / BATCH_SIZE);
-
-            String fileName = "all_students_" + System.currentTimeMillis() + ".pdf";
-            String filePath = System.getProperty("java.io.tmpdir") + fileName;
-
-            try (PDDocument document = new PDDocument()) {
-
-                long processedRecords = 0;
-                PDPage currentPage = null;
-                PDPageContentStream contentStream = null;
-                float yPosition = 0;
-                int recordsOnPage = 0;
-
-                for (int page = 0; page < totalPages; page++) {
-                    Pageable pageable = PageRequest.of(page, BATCH_SIZE);
-                    Page<Student> studentPage = studentRepository.findAll(pageable);
-
-                    for (Student student : studentPage.getContent()) {
-
-                        // Create new page if needed
-                        if (currentPage == null || recordsOnPage >= 30) {
-                            if (contentStream != null) {
-                                contentStream.close();
-                            }
-
-                            currentPage = new PDPage(PDRectangle.A4);
-                            document.addPage(currentPage);
-                            contentStream = new PDPageContentStream(document, currentPage);
-
-                            // Add header
-                            if (processedRecords == 0) {
-                                contentStream.beginText();
-                                contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 16);
-                                contentStream.newLineAtOffset(220, 800);
-                                contentStream.showText("Student Report");
-                                contentStream.endText();
-                                yPosition = 750;
-                            } else {
-                                yPosition = 780;
-                            }
-
-                            // Table header
-                            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 10);
-                            contentStream.beginText();
-                            contentStream.newLineAtOffset(50, yPosition);
-                            contentStream.showText("ID");
-                            contentStream.newLineAtOffset(50, 0);
-                            contentStream.showText("First Name");
-                            contentStream.newLineAtOffset(80, 0);
-                            contentStream.showText("Last Name");
-                            contentStream.newLineAtOffset(80, 0);
-                            contentStream.showText("DOB");
-                            contentStream.newLineAtOffset(80, 0);
-                            contentStream.showText("Class");
-                            contentStream.newLineAtOffset(60, 0);
-                            contentStream.showText("Score");
-                            contentStream.endText();
-
-                            yPosition -= 20;
-                            contentStream.moveTo(50, yPosition);
-                            contentStream.lineTo(550, yPosition);
-                            contentStream.stroke();
-                            yPosition -= 10;
-
-                            recordsOnPage = 0;
-                            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9);
-                        }
-
-                        // Add student data
-                        contentStream.beginText();
-                        contentStream.newLineAtOffset(50, yPosition);
-                        contentStream.showText(String.valueOf(student.getStudentId()));
-                        contentStream.newLineAtOffset(50, 0);
-                        contentStream.showText(truncate(student.getFirstName(), 10));
-                        contentStream.newLineAtOffset(80, 0);
-                        contentStream.showText(truncate(student.getLastName(), 10));
-                        contentStream.newLineAtOffset(80, 0);
-                        contentStream.showText(student.getDob().toString());
-                        contentStream.newLineAtOffset(80, 0);
-                        contentStream.showText(student.getStudentClass());
-                        contentStream.newLineAtOffset(60, 0);
-                        contentStream.showText(String.valueOf(student.getScore()));
-                        contentStream.endText();
-
-                        yPosition -= 20;
-                        recordsOnPage++;
-                        processedRecords++;
-
-                        if (processedRecords % 1000 == 0) {
-                            progressTracker.updateProgress(taskId, processedRecords,
-                                    totalRecords, startTime);
-                        }
-                    }
-                }
-
-                if (contentStream != null) {
-                    contentStream.close();
-                }
-
-                document.save(filePath);
-                progressTracker.completeProgress(taskId, totalRecords, startTime, filePath);
-            }
+            checkpointStore.save(checkpoint);
+            pdfExportEngine.render(checkpoint, token, startTime);
+
+            CachedExport export = exportCache.store("pdf", null, null, checkpoint.getDatasetVersion(),
+                    Path.of(checkpoint.getTargetPath()));
+            progressTracker.completeProgress(taskId, checkpoint.getTotalRecords(), startTime, export);
+            checkpointStore.delete(taskId);
 
+        } catch (JobCancelledException e) {
+            progressTracker.cancelProgress(taskId, checkpoint.getCommittedRows(), checkpoint.getTotalRecords(), startTime);
         } catch (Exception e) {
             progressTracker.failProgress(taskId, e.getMessage());
             e.printStackTrace();
+        } finally {
+            jobControl.release(taskId);
+        }
+    }
+
+    // Rows are compressed block-parallel as they are written, so compression keeps up with row production
+    private OutputStream compressed(OutputStream out, ExportCompression compression) throws IOException {
+        if (compression == ExportCompression.NONE) {
+            return out;
         }
+        return new ParallelGzipOutputStream(out, compression.getLevel(), compressionExecutor);
+    }
+
+    private boolean completeFromCache(String taskId, String format, long totalRecords, long startTime) {
+        Optional<CachedExport> cached = exportCache.lookup(format, null, null);
+        cached.ifPresent(export -> progressTracker.completeProgress(taskId, totalRecords, startTime, export));
+        return cached.isPresent();
     }
 
     private List<Student> getFilteredStudents(Long studentId, String studentClass) {
@@ -397,13 +357,13 @@ public class ExportService {
         } else if (studentClass != null && !studentClass.isEmpty()) {
             return studentRepository.findByStudentClass(studentClass, Pageable.unpaged()).getContent();
         } else {
-            return studentRepository.findAll();
+            return rangeReader.findAll();
         }
     }
 
     private void createExcelHeader(Sheet sheet) {
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
+        String[] headers = XlsxSheetAssembler.HEADERS;
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
@@ -418,9 +378,4 @@ public class ExportService {
         row.createCell(4).setCellValue(student.getStudentClass());
         row.createCell(5).setCellValue(student.getScore());
     }
-
-    private String truncate(String str, int maxLength) {
-        if (str == null) return "";
-        return str.length() > maxLength ? str.substring(0, maxLength) : str;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package com.kidula.studentdataprocessor.service;
+
+public class IngestRejectedException extends RuntimeException {
+
+    public IngestRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.kidula.studentdataprocessor.service;
+
+public class JobCancelledException extends RuntimeException {
+
+    public JobCancelledException(String taskId) {
+        super("Task " + taskId + " was cancelled");
+    }
+}
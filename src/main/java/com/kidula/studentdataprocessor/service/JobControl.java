@@ -0,0 +1,43 @@
+package com.kidula.studentdataprocessor.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class JobControl {
+
+    private final Map<String, CancellationToken> tokens = new ConcurrentHashMap<>();
+
+    // Adopts the token of a task claimed with tryRegister, so a cancel sent before the job started counts
+    public CancellationToken register(String taskId) {
+        return tokens.computeIfAbsent(taskId, CancellationToken::new);
+    }
+
+    /**
+     * Claims taskId for a job about to be dispatched; returns null if it is already running or
+     * claimed. The job's register() then picks up this token and its release() frees it.
+     */
+    public CancellationToken tryRegister(String taskId) {
+        CancellationToken token = new CancellationToken(taskId);
+        return tokens.putIfAbsent(taskId, token) == null ? token : null;
+    }
+
+    public boolean cancel(String taskId) {
+        CancellationToken token = tokens.get(taskId);
+        if (token == null) {
+            return false;
+        }
+        token.cancel();
+        return true;
+    }
+
+    public boolean isRunning(String taskId) {
+        return tokens.containsKey(taskId);
+    }
+
+    public void release(String taskId) {
+        tokens.remove(taskId);
+    }
+}
@@ -0,0 +1,331 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.columnar.StudentColumnar;
+import com.kidula.studentdataprocessor.columnar.StudentColumnarWriter;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.repository.StudentRangeReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Exports the full student table with one worker per id range. The ids are split into as many
+ * contiguous ranges as the exportScanExecutor has threads; each worker reads its range on its own
+ * connection and formats it into a segment file, and the segments are stitched together in range
+ * order, so the output is in id order. CSV segments are appended byte for byte; XLSX segments are
+ * sheet row fragments assembled into one sheet part; columnar segments are complete files whose row
+ * groups are merged under one footer.
+ * <p>
+ * On PostgreSQL every read sees one snapshot: the planning transaction exports its REPEATABLE READ
+ * snapshot with pg_export_snapshot() and each worker's transaction adopts it, so a load starting
+ * meanwhile never shows up in the file. A load commits batch by batch, so no snapshot is taken
+ * while one runs; the export waits for it to finish.
+ * <p>
+ * The planning transaction holds ACCESS SHARE on students until the workers are done. A reload
+ * starting meanwhile waits up to students.truncate-wait-ms for the lock (see
+ * PartitionManager.truncateAll) and only then falls back to deleting the rows.
+ */
+@Service
+public class ParallelExportEngine {
+
+    // Below this a range is not worth a connection of its own
+    static final int MIN_RANGE_ROWS = 50000;
+    private static final int FETCH_SIZE = 5000;
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+    private static final long LOAD_POLL_MS = 500;
+
+    @Autowired
+    private StudentRangeReader rangeReader;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private ExportCache exportCache;
+
+    @Autowired
+    private ProgressTracker progressTracker;
+
+    @Autowired
+    @Qualifier("exportScanExecutor")
+    private ThreadPoolTaskExecutor exportScanExecutor;
+
+    /**
+     * Rows written, and the dataset version of the snapshot they were read from.
+     */
+    public record ExportResult(long rows, long datasetVersion) {
+    }
+
+    private interface SegmentWriter extends Closeable {
+        void write(Student student) throws IOException;
+    }
+
+    private interface SegmentFormat {
+        SegmentWriter open(OutputStream out);
+    }
+
+    /**
+     * Writes the data rows (no header) to out and returns the row count.
+     */
+    public ExportResult writeCsv(OutputStream out, String taskId, CancellationToken token,
+                                 long totalRecords, long startTime) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try {
+            ExportResult result = scan("csv", segments, segmentOut -> {
+                CsvWriter writer = new CsvWriter(segmentOut);
+                return new SegmentWriter() {
+                    @Override
+                    public void write(Student student) throws IOException {
+                        StudentCsv.write(writer, student);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+                };
+            }, taskId, token, totalRecords, startTime);
+
+            for (Path segment : segments) {
+                Files.copy(segment, out);
+            }
+            return result;
+        } finally {
+            deleteAll(segments);
+        }
+    }
+
+    /**
+     * Writes a complete workbook (header and rows) to target and returns the row count.
+     */
+    public ExportResult writeXlsx(Path target, String taskId, CancellationToken token,
+                                  long totalRecords, long startTime) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try {
+            ExportResult result = scan("xml", segments, segmentOut -> {
+                XlsxSheetAssembler.RowWriter writer = new XlsxSheetAssembler.RowWriter(segmentOut);
+                return new SegmentWriter() {
+                    @Override
+                    public void write(Student student) throws IOException {
+                        writer.writeRow(student);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+                };
+            }, taskId, token, totalRecords, startTime);
+
+            XlsxSheetAssembler.assemble("Students", segments, target);
+            return result;
+        } finally {
+            deleteAll(segments);
+        }
+    }
+
+    /**
+     * Writes a complete columnar file to out and returns the row count.
+     */
+    public ExportResult writeColumnar(OutputStream out, String taskId, CancellationToken token,
+                                      long totalRecords, long startTime) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try {
+            ExportResult result = scan(StudentColumnar.EXTENSION, segments, segmentOut -> {
+                StudentColumnarWriter writer;
+                try {
+                    writer = new StudentColumnarWriter(segmentOut);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return new SegmentWriter() {
+                    @Override
+                    public void write(Student student) throws IOException {
+                        writer.write(student);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+                };
+            }, taskId, token, totalRecords, startTime);
+
+            StudentColumnar.merge(segments, out);
+            return result;
+        } finally {
+            deleteAll(segments);
+        }
+    }
+
+    private ExportResult scan(String extension, List<Path> segments, SegmentFormat format, String taskId,
+                              CancellationToken token, long totalRecords, long startTime) {
+        while (true) {
+            awaitNoLoad(token);
+            ExportResult result = snapshotTransaction().execute(status -> {
+                // A load bumps the version before it touches the table and after its last commit,
+                // so a version that is unchanged around the snapshot, with no load running, means the
+                // snapshot holds exactly that version; the snapshot export also locks students, so no
+                // truncate can slip in before count()
+                long version = datasetVersion.current();
+                if (datasetVersion.isChanging()) {
+                    return null;
+                }
+                String snapshot = rangeReader.exportSnapshot();
+                if (datasetVersion.current() != version) {
+                    return null;
+                }
+
+                List<Long> bounds = planRanges(rangeReader.count());
+                AtomicLong processed = new AtomicLong();
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+                for (int i = 0; i < bounds.size(); i++) {
+                    long afterId = bounds.get(i);
+                    long lastId = i + 1 < bounds.size() ? bounds.get(i + 1) : Long.MAX_VALUE;
+                    Path segment = newWorkFile(extension);
+                    segments.add(segment);
+                    futures.add(CompletableFuture.runAsync(
+                            () -> scanRange(snapshot, afterId, lastId, segment, format, taskId, token, processed,
+                                    totalRecords, startTime),
+                            exportScanExecutor));
+                }
+
+                RuntimeException failure = null;
+                for (CompletableFuture<Void> future : futures) {
+                    try {
+                        future.join();
+                    } catch (CompletionException e) {
+                        RuntimeException cause = e.getCause() instanceof RuntimeException runtime
+                                ? runtime : new RuntimeException(e.getCause());
+                        // Keep the first real error; cancellations caused by it are secondary
+                        if (failure == null || (failure instanceof JobCancelledException
+                                && !(cause instanceof JobCancelledException))) {
+                            failure = cause;
+                        }
+                        token.cancel();
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return new ExportResult(processed.get(), version);
+            });
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    // Polls rather than holding a connection, so the waiting export keeps no lock on students
+    private void awaitNoLoad(CancellationToken token) {
+        while (datasetVersion.isChanging()) {
+            token.throwIfCancelled();
+            try {
+                Thread.sleep(LOAD_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a load to finish", e);
+            }
+        }
+    }
+
+    private TransactionTemplate snapshotTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        transaction.setReadOnly(true);
+        return transaction;
+    }
+
+    private Path newWorkFile(String extension) {
+        try {
+            return exportCache.newWorkFile(extension);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Range i holds the rows with bounds[i] < id <= bounds[i + 1]; the last range is open-ended,
+     * so rows inserted after planning are still exported.
+     */
+    private List<Long> planRanges(long totalRecords) {
+        int workers = exportScanExecutor.getMaxPoolSize();
+        long rowsPerRange = Math.max(MIN_RANGE_ROWS, (totalRecords + workers - 1) / Math.max(1, workers));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        if (totalRecords > rowsPerRange) {
+            for (Long id : rangeReader.findIdsAtRowInterval(rowsPerRange)) {
+                if ((long) bounds.size() * rowsPerRange >= totalRecords) break;
+                bounds.add(id);
+            }
+        }
+        return bounds;
+    }
+
+    private void scanRange(String snapshot, long afterId, long lastId, Path segment, SegmentFormat format,
+                           String taskId, CancellationToken token, AtomicLong processed, long totalRecords,
+                           long startTime) {
+        if (snapshot == null) {
+            readRange(afterId, lastId, segment, format, taskId, token, processed, totalRecords, startTime);
+            return;
+        }
+        if (!SNAPSHOT_ID.matcher(snapshot).matches()) {
+            throw new IllegalStateException("Unexpected snapshot id: " + snapshot);
+        }
+        snapshotTransaction().executeWithoutResult(status -> {
+            rangeReader.useSnapshot(snapshot);
+            readRange(afterId, lastId, segment, format, taskId, token, processed, totalRecords, startTime);
+        });
+    }
+
+    private void readRange(long afterId, long lastId, Path segment, SegmentFormat format, String taskId,
+                           CancellationToken token, AtomicLong processed, long totalRecords, long startTime) {
+        try (SegmentWriter writer = format.open(new FileOutputStream(segment.toFile()))) {
+            List<Student> students;
+            while (!(students = rangeReader.findPage(afterId, lastId, FETCH_SIZE)).isEmpty()) {
+                for (Student student : students) {
+                    token.throwIfCancelled();
+                    writer.write(student);
+
+                    long done = processed.incrementAndGet();
+                    if (done % 10000 == 0) {
+                        progressTracker.updateProgress(taskId, done, totalRecords, startTime);
+                    }
+                }
+                afterId = students.get(students.size() - 1).getId();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteAll(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+    }
+}
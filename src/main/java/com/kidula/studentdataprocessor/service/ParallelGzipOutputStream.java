@@ -0,0 +1,149 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream that compresses fixed-size blocks in parallel, in the style of pigz. Each block is
+ * deflated independently with the previous block's last 32KB as preset dictionary and ended with
+ * a sync flush, so the concatenated blocks form one ordinary gzip member readable by any decoder.
+ * The CRC is computed on the writing thread, and the number of blocks in flight is bounded.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final int level;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] dictionary;
+    private long totalIn;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, int level, Executor executor) throws IOException {
+        this.out = out;
+        this.level = level;
+        this.executor = executor;
+        this.maxInFlight = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[blockLength++] = (byte) b;
+        crc.update(b);
+        totalIn++;
+        if (blockLength == BLOCK_SIZE) {
+            submit(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        crc.update(b, off, len);
+        totalIn += len;
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == BLOCK_SIZE) {
+                submit(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeNextBlock();
+            }
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) totalIn);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] input = block;
+        int length = blockLength;
+        byte[] preset = dictionary;
+        int level = this.level;
+
+        pending.add(CompletableFuture.supplyAsync(() -> deflate(input, length, preset, level, last), executor));
+
+        dictionary = length > 0 ? Arrays.copyOfRange(input, Math.max(0, length - DICTIONARY_SIZE), length) : preset;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        while (pending.size() > maxInFlight) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        try {
+            out.write(pending.poll().join());
+        } catch (CompletionException e) {
+            throw new IOException("Block compression failed", e.getCause());
+        }
+    }
+
+    private static byte[] deflate(byte[] input, int length, byte[] preset, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (preset != null) {
+                deflater.setDictionary(preset);
+            }
+            deflater.setInput(input, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 3 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+}
@@ -0,0 +1,84 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.repository.Workload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Knows how the students table is partitioned. With students.partitions > 0 SchemaMigrations
+ * hash-partitions it on student_id into students_p0..students_p{n-1}; on other databases, or with
+ * partitioning disabled (the default), the table stays a single heap.
+ */
+@Service
+public class PartitionManager {
+
+    private static final long TRUNCATE_POLL_MS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${students.partitions:0}")
+    private int configuredPartitions;
+
+    @Value("${students.truncate-wait-ms:30000}")
+    private long truncateWaitMs;
+
+    public int getConfiguredPartitions() {
+        return configuredPartitions;
+    }
+
+    /**
+     * Empties the table for a reload. TRUNCATE drops every partition's files at once instead of
+     * deleting row by row and leaving dead tuples behind, but it needs an exclusive lock and is not
+     * MVCC-safe: waiting for it would queue every later reader, including the workers of a snapshot
+     * export whose planning transaction already holds the table. So the lock is only tried without
+     * waiting. The caller has already started its change, so no new export takes the lock; running
+     * ones are given up to students.truncate-wait-ms to finish, and only past that the rows are
+     * deleted instead.
+     */
+    public void truncateAll() {
+        try (Workload.Scope scope = Workload.BULK_WRITE.enter()) {
+            long deadline = System.currentTimeMillis() + truncateWaitMs;
+            while (!tryTruncate()) {
+                if (System.currentTimeMillis() >= deadline || !pause()) {
+                    jdbcTemplate.update("DELETE FROM students");
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean tryTruncate() {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                jdbcTemplate.execute("LOCK TABLE students IN ACCESS EXCLUSIVE MODE NOWAIT");
+            } catch (PessimisticLockingFailureException e) {
+                status.setRollbackOnly();
+                return false;
+            } catch (DataAccessException e) {
+                // not PostgreSQL
+            }
+            jdbcTemplate.execute("TRUNCATE TABLE students");
+            return true;
+        }));
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(TRUNCATE_POLL_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
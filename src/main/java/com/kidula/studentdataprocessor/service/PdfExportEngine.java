@@ -0,0 +1,176 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.dto.Checkpoint;
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.repository.StudentRangeReader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders the full student table to PDF in parallel. The id range is split into segments of
+ * SEGMENT_ROWS rows (a whole number of pages), each segment is rendered into its own scratch-file
+ * backed document on the pdfRenderExecutor, and the finished segment files are merged in order.
+ * Completed segments are recorded in the checkpoint, so a resume only renders the missing ones.
+ */
+@Service
+public class PdfExportEngine {
+
+    static final int SEGMENT_ROWS = StudentPdfWriter.ROWS_PER_PAGE * 300;
+    private static final int FETCH_SIZE = 3000;
+
+    @Autowired
+    private StudentRangeReader rangeReader;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private ProgressTracker progressTracker;
+
+    @Autowired
+    @Qualifier("pdfRenderExecutor")
+    private Executor pdfRenderExecutor;
+
+    public void render(Checkpoint checkpoint, CancellationToken token, long startTime) throws IOException {
+        if (checkpoint.getSegmentBounds().isEmpty()) {
+            planSegments(checkpoint);
+        }
+
+        if (checkpoint.getSegmentBounds().isEmpty()) {
+            try (StudentPdfWriter writer = new StudentPdfWriter(true)) {
+                writer.save(checkpoint.getTargetPath());
+            }
+            return;
+        }
+
+        AtomicLong processed = new AtomicLong(checkpoint.getCommittedRows());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < checkpoint.getSegmentBounds().size(); i++) {
+            if (checkpoint.getSegments().get(i) != null) {
+                continue;
+            }
+            int segmentIndex = i;
+            futures.add(CompletableFuture.runAsync(
+                    () -> renderSegment(checkpoint, segmentIndex, token, processed, startTime),
+                    pdfRenderExecutor));
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException runtime
+                        ? runtime : new RuntimeException(e.getCause());
+                // Keep the first real error; cancellations caused by it are secondary
+                if (failure == null || (failure instanceof JobCancelledException
+                        && !(cause instanceof JobCancelledException))) {
+                    failure = cause;
+                }
+                token.cancel();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        mergeSegments(checkpoint);
+    }
+
+    private void planSegments(Checkpoint checkpoint) {
+        long totalRecords = rangeReader.count();
+        List<Long> bounds = new ArrayList<>();
+        if (totalRecords > 0) {
+            // Segment i renders the rows after bound i; bounds come from a single ordered index scan
+            bounds.add(0L);
+            for (Long id : rangeReader.findIdsAtRowInterval(SEGMENT_ROWS)) {
+                if ((long) bounds.size() * SEGMENT_ROWS >= totalRecords) break;
+                bounds.add(id);
+            }
+        }
+        checkpoint.setTotalRecords(totalRecords);
+        checkpoint.setSegmentBounds(bounds);
+        checkpoint.setSegments(new ArrayList<>(Collections.nCopies(bounds.size(), null)));
+        checkpointStore.save(checkpoint);
+    }
+
+    private void renderSegment(Checkpoint checkpoint, int segmentIndex, CancellationToken token,
+                               AtomicLong processed, long startTime) {
+        String segmentPath = checkpoint.getTargetPath() + ".part" + segmentIndex;
+        long lastId = checkpoint.getSegmentBounds().get(segmentIndex);
+        int rows = 0;
+
+        try (StudentPdfWriter writer = new StudentPdfWriter(segmentIndex == 0)) {
+            List<Student> students;
+            while (rows < SEGMENT_ROWS && !(students = rangeReader.findPage(
+                    lastId, Long.MAX_VALUE, Math.min(FETCH_SIZE, SEGMENT_ROWS - rows))).isEmpty()) {
+
+                for (Student student : students) {
+                    token.throwIfCancelled();
+                    writer.writeRow(student);
+                    rows++;
+                    lastId = student.getId();
+
+                    long done = processed.incrementAndGet();
+                    if (done % 1000 == 0) {
+                        progressTracker.updateProgress(checkpoint.getTaskId(), done,
+                                checkpoint.getTotalRecords(), startTime);
+                    }
+                }
+            }
+            writer.save(segmentPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        segmentCompleted(checkpoint, segmentIndex, segmentPath, rows);
+    }
+
+    private void segmentCompleted(Checkpoint checkpoint, int segmentIndex, String segmentPath, int rows) {
+        synchronized (checkpoint) {
+            checkpoint.getSegments().set(segmentIndex, segmentPath);
+            checkpoint.setCommittedRows(checkpoint.getCommittedRows() + rows);
+
+            // Everything up to the first missing segment is exported
+            int firstMissing = checkpoint.getSegments().indexOf(null);
+            if (firstMissing > 0) {
+                checkpoint.setLastExportedId(checkpoint.getSegmentBounds().get(firstMissing));
+            }
+            checkpointStore.save(checkpoint);
+        }
+    }
+
+    private void mergeSegments(Checkpoint checkpoint) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        for (String segmentPath : checkpoint.getSegments()) {
+            merger.addSource(new File(segmentPath));
+        }
+
+        // Pages are copied one source at a time into a scratch-file backed document and streamed out
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(checkpoint.getTargetPath()), 1 << 16)) {
+            merger.setDestinationStream(out);
+            merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+        }
+
+        for (String segmentPath : checkpoint.getSegments()) {
+            new File(segmentPath).delete();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.kidula.studentdataprocessor.service;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+public final class PdfFonts {
+
+    // One set per render thread: reused for every page and segment that thread renders, but never
+    // shared between documents that may be saved concurrently on other threads
+    private static final ThreadLocal<PdfFonts> CACHE = ThreadLocal.withInitial(PdfFonts::new);
+
+    private final PDType1Font regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private final PDType1Font bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+
+    private PdfFonts() {
+    }
+
+    public static PDType1Font regular() {
+        return CACHE.get().regular;
+    }
+
+    public static PDType1Font bold() {
+        return CACHE.get().bold;
+    }
+}
@@ -0,0 +1,122 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.dto.ProgressDTO;
+import com.kidula.studentdataprocessor.dto.ProgressDelta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Multiplexed progress for dashboards that watch many tasks. At most once per
+ * progress.stream.interval-ms the changes collected by ProgressTracker are sent as one frame (a
+ * JSON array of ProgressDelta, latest state per task) to the STOMP topic /topic/progress and to
+ * every SSE subscriber, filtered to the tasks it asked for. A task updated many times between
+ * frames appears once, so the cost per frame depends on the number of changed tasks, not on the
+ * update rate.
+ */
+@Service
+public class ProgressStream {
+
+    private static final long HEARTBEAT_MS = 15000;
+
+    @Autowired
+    private ProgressTracker progressTracker;
+
+    @Autowired(required = false)
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${progress.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long lastFrameTime = System.currentTimeMillis();
+
+    private record Subscriber(SseEmitter emitter, Set<String> taskIds) {
+    }
+
+    /**
+     * Opens an SSE stream for the given tasks, or for every task when taskIds is empty. The first
+     * event holds the current state: the given tasks, or all running tasks.
+     */
+    public SseEmitter subscribe(Set<String> taskIds) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, taskIds);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        List<ProgressDelta> initial = new ArrayList<>();
+        for (ProgressDTO progress : progressTracker.getAll()) {
+            if (taskIds.isEmpty() ? "RUNNING".equals(progress.getStatus()) : taskIds.contains(progress.getTaskId())) {
+                initial.add(ProgressDelta.of(progress));
+            }
+        }
+        subscribers.add(subscriber);
+        send(subscriber, initial);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${progress.stream.interval-ms:500}")
+    public void flush() {
+        List<ProgressDTO> changes = progressTracker.drainChanges();
+        long now = System.currentTimeMillis();
+        if (changes.isEmpty()) {
+            if (now - lastFrameTime >= HEARTBEAT_MS) {
+                heartbeat();
+                lastFrameTime = now;
+            }
+            return;
+        }
+        lastFrameTime = now;
+
+        if (messagingTemplate != null) {
+            messagingTemplate.convertAndSend("/topic/progress", toDeltas(changes, Set.of()));
+        }
+        for (Subscriber subscriber : subscribers) {
+            List<ProgressDelta> deltas = toDeltas(changes, subscriber.taskIds());
+            if (!deltas.isEmpty()) {
+                send(subscriber, deltas);
+            }
+        }
+    }
+
+    private List<ProgressDelta> toDeltas(Collection<ProgressDTO> changes, Set<String> taskIds) {
+        List<ProgressDelta> deltas = new ArrayList<>(changes.size());
+        for (ProgressDTO progress : changes) {
+            if (taskIds.isEmpty() || taskIds.contains(progress.getTaskId())) {
+                deltas.add(ProgressDelta.of(progress));
+            }
+        }
+        return deltas;
+    }
+
+    private void send(Subscriber subscriber, List<ProgressDelta> deltas) {
+        try {
+            subscriber.emitter().send(SseEmitter.event().name("progress").data(deltas));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter callbacks may not fire for a write failure
+            subscribers.remove(subscriber);
+        }
+    }
+
+    // Comments keep idle connections open through proxies and reveal dead clients
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter().send(SseEmitter.event().comment("keepalive"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -12,6 +15,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ProgressTracker {
 
     private final Map<String, ProgressDTO> progressMap = new ConcurrentHashMap<>();
+    private final Map<String, ProgressDTO> changed = new ConcurrentHashMap<>(); // drained by ProgressStream
 
     @Autowired(required = false)
     private SimpMessagingTemplate messagingTemplate;
@@ -19,33 +23,82 @@ public class ProgressTracker {
     public void updateProgress(String taskId, long current, long total, long startTime) {
         long timeTaken = (System.currentTimeMillis() - startTime);
         ProgressDTO progress = ProgressDTO.running(taskId, current, total, timeTaken);
-        progressMap.put(taskId, progress);
+        publish(progress);
+    }
 
-        
-        if (messagingTemplate != null) {
-            messagingTemplate.convertAndSend("/topic/progress/" + taskId, progress);
+    public void updateProgress(String taskId, long current, long total, long startTime, long errorCount,
+                               long duplicateCount) {
+        long timeTaken = (System.currentTimeMillis() - startTime);
+        ProgressDTO progress = ProgressDTO.running(taskId, current, total, timeTaken);
+        progress.setErrorCount(errorCount);
+        progress.setDuplicateCount(duplicateCount);
+        publish(progress);
+    }
+
+    public void completeProgress(String taskId, long total, long startTime, String filePath, long errorCount,
+                                 long duplicateCount) {
+        long timeTaken = (System.currentTimeMillis() - startTime);
+        ProgressDTO progress = ProgressDTO.completed(taskId, total, timeTaken, filePath);
+        progress.setErrorCount(errorCount);
+        progress.setDuplicateCount(duplicateCount);
+        if (errorCount > 0 || duplicateCount > 0) {
+            // Rejected duplicates are among the invalid rows
+            progress.setMessage("Process completed, " + errorCount + " invalid rows skipped, "
+                    + duplicateCount + " duplicate student ids");
         }
+        publish(progress);
     }
 
     public void completeProgress(String taskId, long total, long startTime, String filePath) {
         long timeTaken = (System.currentTimeMillis() - startTime);
         ProgressDTO progress = ProgressDTO.completed(taskId, total, timeTaken, filePath);
-        progressMap.put(taskId, progress);
+        publish(progress);
+    }
 
-        
-        if (messagingTemplate != null) {
-            messagingTemplate.convertAndSend("/topic/progress/" + taskId, progress);
-        }
+    public void completeProgress(String taskId, long total, long startTime, String filePath, String artifactId) {
+        long timeTaken = (System.currentTimeMillis() - startTime);
+        ProgressDTO progress = ProgressDTO.completed(taskId, total, timeTaken, filePath, artifactId);
+        publish(progress);
+    }
+
+    public void completeProgress(String taskId, long total, long startTime, CachedExport export) {
+        long timeTaken = (System.currentTimeMillis() - startTime);
+        ProgressDTO progress = ProgressDTO.completed(taskId, total, timeTaken, export.path().toString(), export.key());
+        progress.setDatasetVersion(export.datasetVersion());
+        publish(progress);
     }
 
     public void failProgress(String taskId, String error) {
         ProgressDTO progress = ProgressDTO.failed(taskId, error);
-        progressMap.put(taskId, progress);
+        publish(progress);
+    }
 
-        // Send failure update via WebSocket
-        if (messagingTemplate != null) {
-            messagingTemplate.convertAndSend("/topic/progress/" + taskId, progress);
+    public void cancelProgress(String taskId, long current, long total, long startTime) {
+        long timeTaken = (System.currentTimeMillis() - startTime);
+        ProgressDTO progress = ProgressDTO.cancelled(taskId, current, total, timeTaken);
+        publish(progress);
+    }
+
+    /**
+     * Every task's latest state, finished tasks included.
+     */
+    public Collection<ProgressDTO> getAll() {
+        return progressMap.values();
+    }
+
+    /**
+     * Latest state of each task that changed since the previous call. Updates in between collapse
+     * into one, so a reader draining at a fixed rate sees at most one change per task per frame.
+     */
+    public List<ProgressDTO> drainChanges() {
+        List<ProgressDTO> drained = new ArrayList<>(changed.size());
+        for (String taskId : changed.keySet()) {
+            ProgressDTO progress = changed.remove(taskId);
+            if (progress != null) {
+                drained.add(progress);
+            }
         }
+        return drained;
     }
 
     public ProgressDTO getProgress(String taskId) {
@@ -59,4 +112,13 @@ public class ProgressTracker {
     public void removeProgress(String taskId) {
         progressMap.remove(taskId);
     }
+
+    private void publish(ProgressDTO progress) {
+        progressMap.put(progress.getTaskId(), progress);
+        changed.put(progress.getTaskId(), progress);
+
+        if (messagingTemplate != null) {
+            messagingTemplate.convertAndSend("/topic/progress/" + progress.getTaskId(), progress);
+        }
+    }
 }
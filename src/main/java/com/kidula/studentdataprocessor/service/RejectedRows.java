@@ -0,0 +1,97 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.csv.CsvReader;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Rows of one upload that failed validation. Each is appended to a dead-letter CSV (line number,
+ * reason, then the original fields) that is only created once a row is rejected. The upload is
+ * aborted when the rejected rows exceed maxCount, or maxRate of the rows read once minRows rows
+ * have been read; a negative limit disables it.
+ */
+public class RejectedRows implements Closeable {
+
+    public static final String[] HEADER = {"Line", "Reason", "Fields"};
+
+    private final Path file;
+    private final boolean append;
+    private final long maxCount;
+    private final double maxRate;
+    private final long minRows;
+    private CsvWriter writer;
+    private long count;
+
+    public RejectedRows(Path file, boolean append, long alreadyRejected, long maxCount, double maxRate, long minRows) {
+        this.file = file;
+        this.append = append;
+        this.count = alreadyRejected;
+        this.maxCount = maxCount;
+        this.maxRate = maxRate;
+        this.minRows = minRows;
+    }
+
+    public void reject(CsvReader reader, String reason) throws IOException {
+        open().writeLong(reader.getRowNumber()).writeString(reason);
+        for (int field = 0; field < reader.getFieldCount(); field++) {
+            writer.writeString(reader.getString(field));
+        }
+        writer.endRow();
+        count++;
+    }
+
+    public void reject(long line, String reason, String... fields) throws IOException {
+        open().writeLong(line).writeString(reason);
+        for (String field : fields) {
+            writer.writeString(field);
+        }
+        writer.endRow();
+        count++;
+    }
+
+    private CsvWriter open() throws IOException {
+        if (writer == null) {
+            Files.createDirectories(file.getParent());
+            boolean writeHeader = !append || !Files.exists(file);
+            writer = new CsvWriter(new FileOutputStream(file.toFile(), append));
+            if (writeHeader) {
+                writer.writeRow(HEADER);
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Throws IngestRejectedException once the rejected rows among rowsRead exceed a limit.
+     */
+    public void checkLimits(long rowsRead) {
+        if (maxCount >= 0 && count > maxCount) {
+            throw new IngestRejectedException(count + " invalid rows exceed the limit of " + maxCount
+                    + ", see " + file);
+        }
+        if (maxRate >= 0 && rowsRead >= minRows && count > maxRate * rowsRead) {
+            throw new IngestRejectedException(String.format("%d of %d rows invalid (over %.2f%%), see %s",
+                    count, rowsRead, maxRate * 100, file));
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.repository.Workload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Change log of the students table by studentId. Loads replace the whole table, so after each
+ * successful load the rows are fingerprinted and compared with the fingerprints of the previous
+ * load; every inserted (I), updated (U) and deleted (D) studentId is recorded under the next value
+ * of student_change_version_seq. Delta exports then read only the logged studentIds.
+ * PostgreSQL only (the tables come from SchemaMigrations); elsewhere nothing is recorded.
+ */
+@Service
+public class StudentChangeLog {
+
+    public static final String[] CHANGE_HEADER =
+            {"Operation", "Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
+
+    private static final int FETCH_SIZE = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    private volatile Boolean postgres;
+
+    /**
+     * Records the difference between the table and the previous load. Returns the change version,
+     * or 0 when change tracking is not available.
+     */
+    public long recordLoad() {
+        if (!isPostgres()) {
+            return 0;
+        }
+        try (Workload.Scope scope = Workload.BULK_WRITE.enter()) {
+            Long version = new TransactionTemplate(transactionManager).execute(status -> {
+                long next = jdbcTemplate.queryForObject("SELECT nextval('student_change_version_seq')", Long.class);
+                jdbcTemplate.execute("CREATE TEMP TABLE student_fingerprints_new ON COMMIT DROP AS "
+                        + "SELECT student_id, md5(concat_ws('|', first_name, last_name, dob, student_class, score))::uuid "
+                        + "AS fingerprint FROM students");
+                jdbcTemplate.update("INSERT INTO student_changes (version, student_id, operation) "
+                        + "SELECT ?, n.student_id, CASE WHEN o.student_id IS NULL THEN 'I' ELSE 'U' END "
+                        + "FROM student_fingerprints_new n LEFT JOIN student_fingerprints o ON o.student_id = n.student_id "
+                        + "WHERE o.fingerprint IS DISTINCT FROM n.fingerprint "
+                        + "UNION ALL "
+                        + "SELECT ?, o.student_id, 'D' FROM student_fingerprints o "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM student_fingerprints_new n WHERE n.student_id = o.student_id)",
+                        next, next);
+                jdbcTemplate.execute("TRUNCATE TABLE student_fingerprints");
+                jdbcTemplate.execute("INSERT INTO student_fingerprints SELECT student_id, fingerprint FROM student_fingerprints_new");
+                return next;
+            });
+            return version;
+        }
+    }
+
+    /**
+     * Highest recorded change version; a client that has applied it passes it as sinceVersion next time.
+     */
+    public long latestVersion() {
+        if (!isPostgres()) {
+            return 0;
+        }
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(version), 0) FROM student_changes", Long.class);
+    }
+
+    /**
+     * Writes one row per studentId changed after sinceVersion up to untilVersion, with the latest
+     * operation and, unless deleted, the current row. Ordered by studentId.
+     * <p>
+     * The current rows only match untilVersion while no load runs, so the changes and the rows are
+     * read from one snapshot taken between loads, and untilVersion must be the latest version in it.
+     * Otherwise an IllegalStateException is thrown before anything is written; the caller retries.
+     */
+    public long writeChangesCsv(long sinceVersion, long untilVersion, OutputStream out) throws IOException {
+        try (CsvWriter writer = new CsvWriter(out);
+             Workload.Scope scope = Workload.BULK_READ.enter()) {
+            writer.writeRow(CHANGE_HEADER);
+            if (!isPostgres() || untilVersion <= sinceVersion) {
+                return 0;
+            }
+
+            TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+            snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            snapshot.setReadOnly(true);
+            Long rows = snapshot.execute(status -> {
+                // Same guard as the parallel export scans: the version must not move around the
+                // snapshot, and the lock (which takes no snapshot) keeps a TRUNCATE out until commit
+                long version = datasetVersion.current();
+                if (datasetVersion.isChanging()) {
+                    throw new IllegalStateException("A load is running, retry the change export when it completes");
+                }
+                jdbcTemplate.execute("LOCK TABLE students IN ACCESS SHARE MODE");
+                long latest = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(version), 0) FROM student_changes", Long.class);
+                if (datasetVersion.current() != version || latest != untilVersion) {
+                    throw new IllegalStateException("The students changed since version " + untilVersion
+                            + ", retry the change export");
+                }
+
+                long[] count = {0};
+                // Streams with a cursor inside the transaction, like the index rebuild
+                JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+                streaming.setFetchSize(FETCH_SIZE);
+                streaming.query("SELECT c.operation, c.student_id, s.first_name, s.last_name, s.dob, s.student_class, s.score "
+                        + "FROM (SELECT DISTINCT ON (student_id) student_id, operation FROM student_changes "
+                        + "WHERE version > ? AND version <= ? ORDER BY student_id, version DESC) c "
+                        + "LEFT JOIN students s ON s.student_id = c.student_id AND c.operation <> 'D' "
+                        + "ORDER BY c.student_id", rs -> {
+                    try {
+                        writer.writeString(rs.getString(1)).writeLong(rs.getLong(2));
+                        if (rs.getObject(3) == null) {
+                            writer.writeString("").writeString("").writeString("").writeString("").writeString("");
+                        } else {
+                            writer.writeString(rs.getString(3))
+                                    .writeString(rs.getString(4))
+                                    .writeDate(rs.getObject(5, java.time.LocalDate.class))
+                                    .writeString(rs.getString(6))
+                                    .writeInt(rs.getInt(7));
+                        }
+                        writer.endRow();
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, sinceVersion, untilVersion);
+                return count[0];
+            });
+            return rows;
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+                postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        return postgres;
+    }
+}
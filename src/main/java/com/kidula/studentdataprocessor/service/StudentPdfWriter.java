@@ -0,0 +1,190 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Renders students into a paginated PDF table. The title, table header and rule are drawn once into
+ * Form XObject templates that every page references, and all rows of a page share a single text
+ * object with the font set once. The document is backed by a scratch file instead of the heap, so a
+ * writer can hold thousands of pages while its segment is being rendered.
+ */
+public class StudentPdfWriter implements Closeable {
+
+    public static final int ROWS_PER_PAGE = 30;
+
+    private static final float ROW_HEIGHT = 20;
+    private static final float[] COLUMN_OFFSETS = {50, 80, 80, 80, 60};
+    private static final float ROW_WIDTH = 350; // sum of COLUMN_OFFSETS
+
+    private final PDDocument document;
+    private final boolean withTitle;
+    private PDFormXObject titleTemplate;
+    private PDFormXObject headerTemplate;
+    private PDPageContentStream contentStream;
+    private int recordsOnPage;
+    private int pageCount;
+    private float firstRowY;
+
+    public StudentPdfWriter(boolean withTitle) {
+        this.document = new PDDocument(IOUtils.createTempFileOnlyStreamCache());
+        this.withTitle = withTitle;
+    }
+
+    public void writeRow(Student student) throws IOException {
+        if (contentStream == null || recordsOnPage >= ROWS_PER_PAGE) {
+            newPage();
+        }
+
+        if (recordsOnPage == 0) {
+            contentStream.beginText();
+            contentStream.setFont(PdfFonts.regular(), 9);
+            contentStream.newLineAtOffset(50, firstRowY);
+        } else {
+            contentStream.newLineAtOffset(-ROW_WIDTH, -ROW_HEIGHT);
+        }
+
+        contentStream.showText(String.valueOf(student.getStudentId()));
+        contentStream.newLineAtOffset(COLUMN_OFFSETS[0], 0);
+        contentStream.showText(truncate(student.getFirstName(), 10));
+        contentStream.newLineAtOffset(COLUMN_OFFSETS[1], 0);
+        contentStream.showText(truncate(student.getLastName(), 10));
+        contentStream.newLineAtOffset(COLUMN_OFFSETS[2], 0);
+        contentStream.showText(student.getDob().toString());
+        contentStream.newLineAtOffset(COLUMN_OFFSETS[3], 0);
+        contentStream.showText(student.getStudentClass());
+        contentStream.newLineAtOffset(COLUMN_OFFSETS[4], 0);
+        contentStream.showText(String.valueOf(student.getScore()));
+
+        recordsOnPage++;
+    }
+
+    public void save(String filePath) throws IOException {
+        finishPages();
+        document.save(filePath);
+    }
+
+    public void save(OutputStream outputStream) throws IOException {
+        finishPages();
+        document.save(outputStream);
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closePage();
+        } finally {
+            document.close();
+        }
+    }
+
+    private void finishPages() throws IOException {
+        if (pageCount == 0) {
+            // No rows: still produce a page with the title and table header
+            newPage();
+        }
+        closePage();
+    }
+
+    private void newPage() throws IOException {
+        closePage();
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+        contentStream = new PDPageContentStream(document, page);
+
+        boolean titlePage = withTitle && pageCount == 0;
+        float headerY = titlePage ? 750 : 780;
+        if (titlePage) {
+            contentStream.drawForm(titleTemplate(headerY));
+        } else {
+            contentStream.drawForm(headerTemplate(headerY));
+        }
+        firstRowY = headerY - 30;
+
+        recordsOnPage = 0;
+        pageCount++;
+    }
+
+    private void closePage() throws IOException {
+        if (contentStream == null) {
+            return;
+        }
+        if (recordsOnPage > 0) {
+            contentStream.endText();
+        }
+        contentStream.close();
+        contentStream = null;
+    }
+
+    private PDFormXObject titleTemplate(float headerY) throws IOException {
+        if (titleTemplate == null) {
+            titleTemplate = createTemplate(headerY, true);
+        }
+        return titleTemplate;
+    }
+
+    private PDFormXObject headerTemplate(float headerY) throws IOException {
+        if (headerTemplate == null) {
+            headerTemplate = createTemplate(headerY, false);
+        }
+        return headerTemplate;
+    }
+
+    private PDFormXObject createTemplate(float headerY, boolean withTitleText) throws IOException {
+        PDFormXObject template = new PDFormXObject(document);
+        template.setBBox(PDRectangle.A4);
+        template.setResources(new PDResources());
+
+        try (PDFormContentStream form = new PDFormContentStream(template)) {
+            if (withTitleText) {
+                form.beginText();
+                form.setFont(PdfFonts.bold(), 16);
+                form.newLineAtOffset(220, 800);
+                form.showText("Student Report");
+                form.endText();
+            }
+
+            // Table header
+            form.beginText();
+            form.setFont(PdfFonts.bold(), 10);
+            form.newLineAtOffset(50, headerY);
+            form.showText("ID");
+            form.newLineAtOffset(COLUMN_OFFSETS[0], 0);
+            form.showText("First Name");
+            form.newLineAtOffset(COLUMN_OFFSETS[1], 0);
+            form.showText("Last Name");
+            form.newLineAtOffset(COLUMN_OFFSETS[2], 0);
+            form.showText("DOB");
+            form.newLineAtOffset(COLUMN_OFFSETS[3], 0);
+            form.showText("Class");
+            form.newLineAtOffset(COLUMN_OFFSETS[4], 0);
+            form.showText("Score");
+            form.endText();
+
+            form.moveTo(50, headerY - ROW_HEIGHT);
+            form.lineTo(550, headerY - ROW_HEIGHT);
+            form.stroke();
+        }
+        return template;
+    }
+
+    private static String truncate(String str, int maxLength) {
+        if (str == null) return "";
+        return str.length() > maxLength ? str.substring(0, maxLength) : str;
+    }
+}
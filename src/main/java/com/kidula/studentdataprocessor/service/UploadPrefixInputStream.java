@@ -0,0 +1,53 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an upload's target file while it is still being received, never past the contiguous
+ * prefix of verified chunks. Reads block until the next bytes arrive.
+ */
+public class UploadPrefixInputStream extends InputStream {
+
+    private final UploadSession session;
+    private final FileChannel channel;
+    private final long stallTimeoutMs;
+    private long position;
+
+    public UploadPrefixInputStream(UploadSession session, long stallTimeoutMs) throws IOException {
+        this.session = session;
+        this.channel = FileChannel.open(session.getPath(), StandardOpenOption.READ);
+        this.stallTimeoutMs = stallTimeoutMs;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= session.getTotalSize()) {
+            return -1;
+        }
+        long available = session.awaitContiguous(position, stallTimeoutMs);
+        int n = (int) Math.min(len, available - position);
+        int read = channel.read(ByteBuffer.wrap(b, off, n), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,182 @@
+package com.kidula.studentdataprocessor.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * State of one chunked upload: the preallocated target file, the byte ranges received so far and
+ * the ranges being written. Readers of a not yet complete upload wait here for the contiguous prefix
+ * to grow.
+ */
+public class UploadSession {
+
+    private final String uploadId;
+    private final String fileName;
+    private final String type;
+    private final long totalSize;
+    private final Path path;
+    private final TreeMap<Long, Long> received = new TreeMap<>(); // start -> end (exclusive), merged
+    private final TreeMap<Long, Long> writing = new TreeMap<>(); // chunks in flight, start -> end
+    private long receivedBytes;
+    private long lastActivity = System.currentTimeMillis();
+    private boolean aborted;
+    private String taskId;
+
+    public UploadSession(String uploadId, String fileName, String type, long totalSize, Path path) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.type = type;
+        this.totalSize = totalSize;
+        this.path = path;
+    }
+
+    /**
+     * Reserves [start, end) for one chunk write until {@link #release}. Bytes already received or
+     * being written by another request are never overwritten, so a verified range stays verified.
+     */
+    public synchronized void claim(long start, long end) {
+        if (aborted) {
+            throw new IllegalStateException("Upload " + uploadId + " was aborted");
+        }
+        if (overlaps(received, start, end)) {
+            throw new IllegalStateException("Chunk [" + start + ", " + end + ") overlaps bytes already received");
+        }
+        if (overlaps(writing, start, end)) {
+            throw new IllegalStateException("Chunk [" + start + ", " + end + ") overlaps a chunk still being written");
+        }
+        writing.put(start, end);
+        lastActivity = System.currentTimeMillis();
+    }
+
+    public synchronized void release(long start) {
+        writing.remove(start);
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Aborts the upload if no chunk was written since {@code cutoff} and none is in flight.
+     */
+    public synchronized boolean expireIfIdle(long cutoff) {
+        if (aborted || !writing.isEmpty() || lastActivity >= cutoff) {
+            return false;
+        }
+        abort();
+        return true;
+    }
+
+    public synchronized void markReceived(long start, long end) {
+        Map.Entry<Long, Long> before = received.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = received.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            received.remove(next.getKey());
+        }
+        received.put(start, end);
+        receivedBytes = received.entrySet().stream().mapToLong(e -> e.getValue() - e.getKey()).sum();
+        notifyAll();
+    }
+
+    // The ranges are disjoint, so only the last one starting before end can reach past start
+    private static boolean overlaps(TreeMap<Long, Long> ranges, long start, long end) {
+        Map.Entry<Long, Long> before = ranges.lowerEntry(end);
+        return before != null && before.getValue() > start;
+    }
+
+    public synchronized long contiguousBytes() {
+        Map.Entry<Long, Long> first = received.firstEntry();
+        return first != null && first.getKey() == 0 ? first.getValue() : 0;
+    }
+
+    public synchronized boolean isComplete() {
+        return contiguousBytes() == totalSize;
+    }
+
+    public synchronized List<long[]> missingRanges() {
+        List<long[]> missing = new ArrayList<>();
+        long position = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            if (range.getKey() > position) {
+                missing.add(new long[]{position, range.getKey()});
+            }
+            position = range.getValue();
+        }
+        if (position < totalSize) {
+            missing.add(new long[]{position, totalSize});
+        }
+        return missing;
+    }
+
+    /**
+     * Blocks until more than {@code position} bytes are available as a contiguous prefix and returns
+     * the prefix length. Fails if the upload is aborted or makes no progress within the stall timeout.
+     */
+    public synchronized long awaitContiguous(long position, long stallTimeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + stallTimeoutMs;
+        long available;
+        while ((available = contiguousBytes()) <= position && position < totalSize) {
+            if (aborted) {
+                throw new IOException("Upload " + uploadId + " was aborted");
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Upload " + uploadId + " stalled at byte " + position);
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for upload " + uploadId, e);
+            }
+        }
+        return available;
+    }
+
+    public synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    public synchronized String getTaskId() {
+        return taskId;
+    }
+
+    public synchronized void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public synchronized long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,148 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds a single-sheet .xlsx from row fragments written independently. Each fragment is a run of
+ * &lt;row&gt; elements without cell references, which SpreadsheetML numbers in document order, so
+ * fragments written by different workers can be appended in order. POI only produces an empty
+ * template workbook; its sheet part is replaced by the header row and the fragments.
+ */
+final class XlsxSheetAssembler {
+
+    static final String[] HEADERS = {"Student ID", "First Name", "Last Name", "DOB", "Class", "Score"};
+
+    private static final String SHEET_START = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>";
+    private static final String SHEET_END = "</sheetData></worksheet>";
+
+    private XlsxSheetAssembler() {
+    }
+
+    /**
+     * Writes the rows of one fragment, with the same cell types as ExportService.fillExcelRow.
+     */
+    static final class RowWriter implements Closeable {
+
+        private final Writer out;
+
+        RowWriter(OutputStream out) {
+            this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+        }
+
+        RowWriter(Writer out) {
+            this.out = out;
+        }
+
+        void writeRow(Student student) throws IOException {
+            out.write("<row>");
+            number(student.getStudentId());
+            text(student.getFirstName());
+            text(student.getLastName());
+            text(student.getDob().toString());
+            text(student.getStudentClass());
+            number(student.getScore());
+            out.write("</row>");
+        }
+
+        void writeHeader() throws IOException {
+            out.write("<row>");
+            for (String header : HEADERS) {
+                text(header);
+            }
+            out.write("</row>");
+        }
+
+        private void number(long value) throws IOException {
+            out.write("<c><v>");
+            out.write(Long.toString(value));
+            out.write("</v></c>");
+        }
+
+        private void text(String value) throws IOException {
+            out.write("<c t=\"inlineStr\"><is><t>");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&' -> out.write("&amp;");
+                    case '<' -> out.write("&lt;");
+                    case '>' -> out.write("&gt;");
+                    default -> out.write(c);
+                }
+            }
+            out.write("</t></is></c>");
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes target as a workbook with one sheet holding the header row followed by the fragments.
+     */
+    static void assemble(String sheetName, List<Path> fragments, Path target) throws IOException {
+        Path template = Files.createTempFile(target.getParent(), "template", ".xlsx");
+        try {
+            String sheetPart;
+            try (XSSFWorkbook workbook = new XSSFWorkbook();
+                 OutputStream out = Files.newOutputStream(template)) {
+                XSSFSheet sheet = workbook.createSheet(sheetName);
+                sheetPart = sheet.getPackagePart().getPartName().getName().substring(1);
+                workbook.write(out);
+            }
+
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(template));
+                 ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(target.toFile())))) {
+                // The sheet is nearly the whole file and is deflated on this one thread
+                out.setLevel(Deflater.BEST_SPEED);
+                ZipEntry entry;
+                while ((entry = in.getNextEntry()) != null) {
+                    out.putNextEntry(new ZipEntry(entry.getName()));
+                    if (entry.getName().equals(sheetPart)) {
+                        writeSheet(fragments, out);
+                    } else {
+                        in.transferTo(out);
+                    }
+                    out.closeEntry();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(template);
+        }
+    }
+
+    private static void writeSheet(List<Path> fragments, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(SHEET_START);
+        new RowWriter(writer).writeHeader();
+        writer.flush();
+        for (Path fragment : fragments) {
+            try (InputStream in = Files.newInputStream(fragment)) {
+                in.transferTo(out);
+            }
+        }
+        out.write(SHEET_END.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,11 @@
+package com.kidula.studentdataprocessor.transform;
+
+/**
+ * A transform chain that does not compile; the message names the position of the first error.
+ */
+public class InvalidTransformException extends IllegalArgumentException {
+
+    public InvalidTransformException(int position, String message) {
+        super("Invalid transform at position " + position + ": " + message);
+    }
+}
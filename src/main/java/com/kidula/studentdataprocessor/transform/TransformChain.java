@@ -0,0 +1,61 @@
+package com.kidula.studentdataprocessor.transform;
+
+import com.kidula.studentdataprocessor.entity.Student;
+
+/**
+ * A compiled transform chain. The steps are nested lambdas built once by TransformCompiler, so a
+ * row runs straight through them without looking at the source text again.
+ */
+public final class TransformChain {
+
+    @FunctionalInterface
+    interface Step {
+        // Returns false when the row is filtered out
+        boolean apply(TransformRow row);
+    }
+
+    private final String source;
+    private final Step step;
+    private final boolean readsStudentId;
+
+    TransformChain(String source, Step step, boolean readsStudentId) {
+        this.source = source;
+        this.step = step;
+        this.readsStudentId = readsStudentId;
+    }
+
+    /**
+     * Runs the chain on row in place. Returns false when a filter dropped the row, in which case
+     * the row may be partly transformed.
+     */
+    public boolean apply(TransformRow row) {
+        return step.apply(row);
+    }
+
+    /**
+     * Runs the chain on a parsed student; the student is only changed when it is kept.
+     */
+    public boolean apply(Student student, TransformRow row) {
+        row.set(student.getStudentId(), student.getStudentClass(), student.getScore());
+        if (!step.apply(row)) {
+            return false;
+        }
+        student.setStudentClass(row.studentClass);
+        student.setScore(row.score);
+        return true;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Callers that have to parse studentId for the chain can skip it when this is false
+    public boolean readsStudentId() {
+        return readsStudentId;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,527 @@
+package com.kidula.studentdataprocessor.transform;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compiles transform chains such as {@code "score = clamp(score + 5, 0, 100); filter score >= 60"}.
+ * The steps are separated by ';' and run in order:
+ * <ul>
+ *   <li>{@code score = <expr>}: integer arithmetic (+ - * / %, parentheses) over score, studentId
+ *   and literals, with min(a, b), max(a, b), abs(x), clamp(x, lo, hi) and random(lo, hi) (inclusive).
+ *   The result saturates at the int range.</li>
+ *   <li>{@code class = 'A'} or {@code class = map('Class1': 'A', 'Class2': 'B')}; unmapped classes
+ *   are kept.</li>
+ *   <li>{@code filter <condition>}: comparisons (== != < <= > >=) of expressions, class == 'X',
+ *   class != 'X' and class in ('X', 'Y'), combined with and / or / not and parentheses. Rows
+ *   failing it are dropped.</li>
+ * </ul>
+ * The parser builds the lambdas directly, folding constants and specializing the common
+ * "score op constant" shapes, so nothing is parsed or looked up per row.
+ */
+@Component
+public class TransformCompiler {
+
+    private static final int MAX_CACHED = 256;
+
+    @FunctionalInterface
+    private interface LongExpr {
+        long eval(TransformRow row);
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean test(TransformRow row);
+    }
+
+    private final Map<String, TransformChain> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the compiled chain for source, or throws InvalidTransformException naming the position
+     * of the first error. A blank source is the identity chain.
+     */
+    public TransformChain compile(String source) {
+        String key = source == null ? "" : source.trim();
+        TransformChain chain = cache.get(key);
+        if (chain == null) {
+            chain = new Parser(key).chain();
+            // Chains come from requests too; keep the cache from growing without bound
+            if (cache.size() < MAX_CACHED) {
+                cache.put(key, chain);
+            }
+        }
+        return chain;
+    }
+
+    // A compiled integer expression; constant when value is known at compile time
+    private record Num(LongExpr expr, boolean constant, long value, boolean score) {
+
+        static Num literal(long value) {
+            return new Num(row -> value, true, value, false);
+        }
+
+        static Num of(LongExpr expr) {
+            return new Num(expr, false, 0, false);
+        }
+    }
+
+    private static final class Parser {
+
+        private final String source;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private int index;
+        private boolean readsStudentId;
+
+        Parser(String source) {
+            this.source = source;
+            tokenize();
+        }
+
+        TransformChain chain() {
+            List<TransformChain.Step> steps = new ArrayList<>();
+            while (!atEnd()) {
+                if (accept(";")) {
+                    continue;
+                }
+                steps.add(step());
+                if (!atEnd()) {
+                    expect(";");
+                }
+            }
+            TransformChain.Step chain = row -> true;
+            if (!steps.isEmpty()) {
+                chain = steps.get(0);
+                for (int i = 1; i < steps.size(); i++) {
+                    TransformChain.Step first = chain;
+                    TransformChain.Step next = steps.get(i);
+                    chain = row -> first.apply(row) && next.apply(row);
+                }
+            }
+            return new TransformChain(source, chain, readsStudentId);
+        }
+
+        private TransformChain.Step step() {
+            if (accept("filter")) {
+                Condition condition = condition();
+                return condition::test;
+            }
+            if (accept("score")) {
+                expect("=");
+                LongExpr expr = expression().expr();
+                return row -> {
+                    row.score = saturate(expr.eval(row));
+                    return true;
+                };
+            }
+            if (accept("class") || accept("studentClass")) {
+                expect("=");
+                return classAssignment();
+            }
+            throw error("expected 'score =', 'class =' or 'filter'");
+        }
+
+        private TransformChain.Step classAssignment() {
+            if (accept("map")) {
+                expect("(");
+                Map<String, String> mapping = new HashMap<>();
+                do {
+                    String from = string();
+                    expect(":");
+                    mapping.put(from, string());
+                } while (accept(","));
+                expect(")");
+                Map<String, String> lookup = Map.copyOf(mapping);
+                return row -> {
+                    String mapped = row.studentClass == null ? null : lookup.get(row.studentClass);
+                    if (mapped != null) {
+                        row.studentClass = mapped;
+                    }
+                    return true;
+                };
+            }
+            String value = string();
+            return row -> {
+                row.studentClass = value;
+                return true;
+            };
+        }
+
+        private Condition condition() {
+            Condition left = conjunction();
+            while (accept("or")) {
+                Condition first = left;
+                Condition second = conjunction();
+                left = row -> first.test(row) || second.test(row);
+            }
+            return left;
+        }
+
+        private Condition conjunction() {
+            Condition left = negation();
+            while (accept("and")) {
+                Condition first = left;
+                Condition second = negation();
+                left = row -> first.test(row) && second.test(row);
+            }
+            return left;
+        }
+
+        private Condition negation() {
+            if (accept("not")) {
+                Condition inner = negation();
+                return row -> !inner.test(row);
+            }
+            // "(" opens either a nested condition or an arithmetic expression; try the condition first
+            if (peek("(")) {
+                int start = index;
+                try {
+                    index++;
+                    Condition inner = condition();
+                    expect(")");
+                    return inner;
+                } catch (InvalidTransformException e) {
+                    index = start;
+                }
+            }
+            return comparison();
+        }
+
+        private Condition comparison() {
+            if (accept("class") || accept("studentClass")) {
+                if (accept("in")) {
+                    expect("(");
+                    Set<String> values = new HashSet<>();
+                    do {
+                        values.add(string());
+                    } while (accept(","));
+                    expect(")");
+                    Set<String> set = Set.copyOf(values);
+                    return row -> row.studentClass != null && set.contains(row.studentClass);
+                }
+                boolean equal = accept("==");
+                if (!equal) {
+                    expect("!=");
+                }
+                String value = string();
+                return equal ? row -> value.equals(row.studentClass) : row -> !value.equals(row.studentClass);
+            }
+
+            Num left = expression();
+            String op = next();
+            Num right = expression();
+            if (left.constant() && right.constant()) {
+                boolean result = compare(op, left.value(), right.value());
+                return row -> result;
+            }
+            LongExpr a = left.expr();
+            if (right.constant()) {
+                long c = right.value();
+                if (left.score()) {
+                    return switch (op) {
+                        case "==" -> row -> row.score == c;
+                        case "!=" -> row -> row.score != c;
+                        case "<" -> row -> row.score < c;
+                        case "<=" -> row -> row.score <= c;
+                        case ">" -> row -> row.score > c;
+                        case ">=" -> row -> row.score >= c;
+                        default -> throw error("expected a comparison operator");
+                    };
+                }
+                return switch (op) {
+                    case "==" -> row -> a.eval(row) == c;
+                    case "!=" -> row -> a.eval(row) != c;
+                    case "<" -> row -> a.eval(row) < c;
+                    case "<=" -> row -> a.eval(row) <= c;
+                    case ">" -> row -> a.eval(row) > c;
+                    case ">=" -> row -> a.eval(row) >= c;
+                    default -> throw error("expected a comparison operator");
+                };
+            }
+            LongExpr b = right.expr();
+            return switch (op) {
+                case "==" -> row -> a.eval(row) == b.eval(row);
+                case "!=" -> row -> a.eval(row) != b.eval(row);
+                case "<" -> row -> a.eval(row) < b.eval(row);
+                case "<=" -> row -> a.eval(row) <= b.eval(row);
+                case ">" -> row -> a.eval(row) > b.eval(row);
+                case ">=" -> row -> a.eval(row) >= b.eval(row);
+                default -> throw error("expected a comparison operator");
+            };
+        }
+
+        private Num expression() {
+            Num left = term();
+            while (peek("+") || peek("-")) {
+                left = binary(next(), left, term());
+            }
+            return left;
+        }
+
+        private Num term() {
+            Num left = unary();
+            while (peek("*") || peek("/") || peek("%")) {
+                left = binary(next(), left, unary());
+            }
+            return left;
+        }
+
+        private Num unary() {
+            if (accept("-")) {
+                Num inner = unary();
+                if (inner.constant()) {
+                    return Num.literal(-inner.value());
+                }
+                LongExpr expr = inner.expr();
+                return Num.of(row -> -expr.eval(row));
+            }
+            return primary();
+        }
+
+        private Num primary() {
+            if (accept("(")) {
+                Num inner = expression();
+                expect(")");
+                return inner;
+            }
+            if (accept("score")) {
+                return new Num(row -> row.score, false, 0, true);
+            }
+            if (accept("studentId")) {
+                readsStudentId = true;
+                return Num.of(row -> row.studentId);
+            }
+            if (accept("min") || accept("max")) {
+                boolean min = tokens.get(index - 1).equals("min");
+                List<Num> args = arguments(2);
+                LongExpr a = args.get(0).expr();
+                LongExpr b = args.get(1).expr();
+                if (args.get(0).constant() && args.get(1).constant()) {
+                    return Num.literal(min ? Math.min(args.get(0).value(), args.get(1).value())
+                            : Math.max(args.get(0).value(), args.get(1).value()));
+                }
+                return Num.of(min ? row -> Math.min(a.eval(row), b.eval(row)) : row -> Math.max(a.eval(row), b.eval(row)));
+            }
+            if (accept("abs")) {
+                Num arg = arguments(1).get(0);
+                if (arg.constant()) {
+                    return Num.literal(Math.abs(arg.value()));
+                }
+                LongExpr a = arg.expr();
+                return Num.of(row -> Math.abs(a.eval(row)));
+            }
+            if (accept("clamp")) {
+                List<Num> args = arguments(3);
+                if (!args.get(1).constant() || !args.get(2).constant()) {
+                    throw error("clamp bounds must be constants");
+                }
+                long lo = args.get(1).value();
+                long hi = args.get(2).value();
+                if (lo > hi) {
+                    throw error("clamp lower bound is above the upper bound");
+                }
+                LongExpr a = args.get(0).expr();
+                if (args.get(0).score()) {
+                    return Num.of(row -> Math.max(lo, Math.min(hi, row.score)));
+                }
+                return Num.of(row -> Math.max(lo, Math.min(hi, a.eval(row))));
+            }
+            if (accept("random")) {
+                List<Num> args = arguments(2);
+                if (!args.get(0).constant() || !args.get(1).constant()) {
+                    throw error("random bounds must be constants");
+                }
+                long lo = args.get(0).value();
+                long span = args.get(1).value() - lo + 1;
+                if (span <= 0 || span > Integer.MAX_VALUE) {
+                    throw error("random needs lo <= hi within the int range");
+                }
+                int bound = (int) span;
+                return Num.of(row -> lo + (row.random != null ? row.random.nextInt(bound)
+                        : ThreadLocalRandom.current().nextInt(bound)));
+            }
+            String token = next();
+            try {
+                return Num.literal(Long.parseLong(token));
+            } catch (NumberFormatException e) {
+                index--;
+                throw error("expected a number, score, studentId or function");
+            }
+        }
+
+        private List<Num> arguments(int count) {
+            expect("(");
+            List<Num> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    expect(",");
+                }
+                args.add(expression());
+            }
+            expect(")");
+            return args;
+        }
+
+        private Num binary(String op, Num left, Num right) {
+            if ((op.equals("/") || op.equals("%")) && right.constant() && right.value() == 0) {
+                throw error("division by zero");
+            }
+            if (left.constant() && right.constant()) {
+                long a = left.value();
+                long b = right.value();
+                return Num.literal(switch (op) {
+                    case "+" -> a + b;
+                    case "-" -> a - b;
+                    case "*" -> a * b;
+                    case "/" -> a / b;
+                    default -> a % b;
+                });
+            }
+            LongExpr a = left.expr();
+            if (right.constant()) {
+                long c = right.value();
+                if (left.score()) {
+                    return Num.of(switch (op) {
+                        case "+" -> row -> row.score + c;
+                        case "-" -> row -> row.score - c;
+                        case "*" -> row -> row.score * c;
+                        case "/" -> row -> row.score / c;
+                        default -> row -> row.score % c;
+                    });
+                }
+                return Num.of(switch (op) {
+                    case "+" -> row -> a.eval(row) + c;
+                    case "-" -> row -> a.eval(row) - c;
+                    case "*" -> row -> a.eval(row) * c;
+                    case "/" -> row -> a.eval(row) / c;
+                    default -> row -> a.eval(row) % c;
+                });
+            }
+            LongExpr b = right.expr();
+            // A zero divisor at run time leaves the value unchanged rather than failing the job
+            return Num.of(switch (op) {
+                case "+" -> row -> a.eval(row) + b.eval(row);
+                case "-" -> row -> a.eval(row) - b.eval(row);
+                case "*" -> row -> a.eval(row) * b.eval(row);
+                case "/" -> row -> {
+                    long divisor = b.eval(row);
+                    return divisor == 0 ? a.eval(row) : a.eval(row) / divisor;
+                };
+                default -> row -> {
+                    long divisor = b.eval(row);
+                    return divisor == 0 ? a.eval(row) : a.eval(row) % divisor;
+                };
+            });
+        }
+
+        private boolean compare(String op, long a, long b) {
+            return switch (op) {
+                case "==" -> a == b;
+                case "!=" -> a != b;
+                case "<" -> a < b;
+                case "<=" -> a <= b;
+                case ">" -> a > b;
+                case ">=" -> a >= b;
+                default -> throw error("expected a comparison operator");
+            };
+        }
+
+        private String string() {
+            String token = atEnd() ? "" : tokens.get(index);
+            if (!token.startsWith("'")) {
+                throw error("expected a quoted string");
+            }
+            index++;
+            return token.substring(1, token.length() - 1).replace("''", "'");
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (Character.isLetter(c)) {
+                    while (i < source.length() && Character.isLetterOrDigit(source.charAt(i))) i++;
+                } else if (Character.isDigit(c)) {
+                    while (i < source.length() && Character.isDigit(source.charAt(i))) i++;
+                } else if (c == '\'') {
+                    // '' inside a string is a quote
+                    i++;
+                    while (true) {
+                        if (i >= source.length()) {
+                            throw new InvalidTransformException(start, "unterminated string");
+                        }
+                        if (source.charAt(i) == '\'') {
+                            if (i + 1 < source.length() && source.charAt(i + 1) == '\'') {
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        i++;
+                    }
+                } else if ((c == '=' || c == '!' || c == '<' || c == '>')
+                        && i + 1 < source.length() && source.charAt(i + 1) == '=') {
+                    i += 2;
+                } else if ("+-*/%(),:;=<>".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    throw new InvalidTransformException(start, "unexpected '" + c + "'");
+                }
+                tokens.add(source.substring(start, i));
+                positions.add(start);
+            }
+        }
+
+        private boolean atEnd() {
+            return index >= tokens.size();
+        }
+
+        private boolean peek(String token) {
+            return !atEnd() && tokens.get(index).equals(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("expected '" + token + "'");
+            }
+        }
+
+        private String next() {
+            if (atEnd()) {
+                throw error("unexpected end");
+            }
+            return tokens.get(index++);
+        }
+
+        private InvalidTransformException error(String message) {
+            int position = atEnd() ? source.length() : positions.get(index);
+            return new InvalidTransformException(position, message);
+        }
+
+        private static int saturate(long value) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        }
+    }
+}
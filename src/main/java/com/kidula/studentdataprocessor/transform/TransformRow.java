@@ -0,0 +1,42 @@
+package com.kidula.studentdataprocessor.transform;
+
+import java.util.Random;
+
+/**
+ * The columns a TransformChain reads and writes. One instance is reused for every row of a job,
+ * so the chain allocates nothing per row.
+ */
+public final class TransformRow {
+
+    long studentId;
+    String studentClass;
+    int score;
+    Random random;
+
+    public TransformRow() {
+    }
+
+    // Source of random(lo, hi); a job that needs reproducible rows passes a seeded one
+    public TransformRow(Random random) {
+        this.random = random;
+    }
+
+    public TransformRow set(long studentId, String studentClass, int score) {
+        this.studentId = studentId;
+        this.studentClass = studentClass;
+        this.score = score;
+        return this;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public String getStudentClass() {
+        return studentClass;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
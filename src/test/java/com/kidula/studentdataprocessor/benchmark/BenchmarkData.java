@@ -0,0 +1,61 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.entity.Student;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so runs from different releases compare the same work.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    private static final String[] CLASSES = {"Class1", "Class2", "Class3", "Class4", "Class5"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Student> students(int rows) {
+        Random random = new Random(SEED);
+        List<Student> students = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            students.add(new Student((long) i, name(random), name(random),
+                    LocalDate.of(2000, 1, 1).plusDays(random.nextInt(4018)),
+                    CLASSES[random.nextInt(CLASSES.length)], random.nextInt(21) + 55));
+        }
+        return students;
+    }
+
+    // Upload-format CSV: the file DataProcessingService produces and DataUploadService reads
+    static byte[] csv(List<Student> students) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter writer = new CsvWriter(out)) {
+            writer.writeRow("studentId", "firstName", "lastName", "DOB", "class", "score");
+            for (Student s : students) {
+                writer.writeLong(s.getStudentId())
+                        .writeString(s.getFirstName())
+                        .writeString(s.getLastName())
+                        .writeDate(s.getDob())
+                        .writeString(s.getStudentClass())
+                        .writeInt(s.getScore())
+                        .endRow();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String name(Random random) {
+        char[] chars = new char[3 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((random.nextBoolean() ? 'A' : 'a') + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,126 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.columnar.ColumnarFilter;
+import com.kidula.studentdataprocessor.columnar.StudentColumnar;
+import com.kidula.studentdataprocessor.columnar.StudentColumnarReader;
+import com.kidula.studentdataprocessor.columnar.StudentColumnarWriter;
+import com.kidula.studentdataprocessor.csv.CsvReader;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.entity.Student;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads N student rows as CSV and as a columnar file. The filtered read asks for the
+ * top tenth of the studentIds, so the footer statistics let it skip most row groups. File sizes are
+ * printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private List<Student> students;
+    private byte[] csv;
+    private Path columnar;
+    private ColumnarFilter topTenth;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        students = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            students.add(new Student((long) i, "First" + i, "Last" + i,
+                    LocalDate.of(2000, 1, 1).plusDays(i % 4000), "Class" + (i % 5 + 1), 55 + i % 21));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter writer = new CsvWriter(out)) {
+            writer.writeRow(StudentCsv.EXPORT_HEADER);
+            for (Student s : students) {
+                StudentCsv.write(writer, s);
+            }
+        }
+        csv = out.toByteArray();
+
+        columnar = Files.createTempFile("students", "." + StudentColumnar.EXTENSION);
+        try (StudentColumnarWriter writer = new StudentColumnarWriter(Files.newOutputStream(columnar))) {
+            for (Student s : students) {
+                writer.write(s);
+            }
+        }
+        topTenth = new ColumnarFilter(rows - rows / 10L, null, null, null, null, null);
+        System.out.printf("%n%d rows: CSV %d bytes, columnar %d bytes%n", rows, csv.length, Files.size(columnar));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(columnar);
+    }
+
+    @Benchmark
+    public void writeCsv() throws Exception {
+        try (CsvWriter writer = new CsvWriter(OutputStream.nullOutputStream())) {
+            writer.writeRow(StudentCsv.EXPORT_HEADER);
+            for (Student s : students) {
+                StudentCsv.write(writer, s);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeColumnar() throws Exception {
+        try (StudentColumnarWriter writer = new StudentColumnarWriter(OutputStream.nullOutputStream())) {
+            for (Student s : students) {
+                writer.write(s);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readCsv(Blackhole bh) throws Exception {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            reader.next();
+            while (reader.next()) {
+                bh.consume(StudentCsv.read(reader));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readColumnar(Blackhole bh) throws Exception {
+        try (StudentColumnarReader reader = StudentColumnarReader.open(columnar)) {
+            for (StudentColumnar.RowGroup group : reader.getRowGroups()) {
+                bh.consume(reader.readRowGroup(group));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readColumnarFiltered(Blackhole bh) throws Exception {
+        try (StudentColumnarReader reader = StudentColumnarReader.open(columnar)) {
+            for (StudentColumnar.RowGroup group : reader.getRowGroups(topTenth)) {
+                for (Student student : reader.readRowGroup(group)) {
+                    if (topTenth.matches(student)) {
+                        bh.consume(student);
+                    }
+                }
+            }
+        }
+    }
+}
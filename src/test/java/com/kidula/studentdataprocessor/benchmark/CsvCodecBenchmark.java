@@ -0,0 +1,101 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.csv.CsvReader;
+import com.kidula.studentdataprocessor.csv.CsvWriter;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.entity.Student;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses and writes N student rows with OpenCSV and with the in-house codec. Input is the fully
+ * quoted form OpenCSV writes, so the codec is measured on the files we actually receive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class CsvCodecBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private byte[] csv;
+    private List<Student> students;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        students = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            students.add(new Student((long) i, "First" + i, "Last" + i,
+                    LocalDate.of(2000, 1, 1).plusDays(i % 4000), "Class" + (i % 5 + 1), 55 + i % 21));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.writeNext(new String[]{"studentId", "firstName", "lastName", "DOB", "class", "score"});
+            for (Student s : students) {
+                writer.writeNext(new String[]{s.getStudentId().toString(), s.getFirstName(), s.getLastName(),
+                        s.getDob().toString(), s.getStudentClass(), s.getScore().toString()});
+            }
+        }
+        csv = out.toByteArray();
+    }
+
+    @Benchmark
+    public void parseOpenCsv(Blackhole bh) throws Exception {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            reader.readNext();
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                bh.consume(new Student(Long.parseLong(line[0]), line[1], line[2],
+                        LocalDate.parse(line[3]), line[4], Integer.parseInt(line[5])));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseCodec(Blackhole bh) throws Exception {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            reader.next();
+            while (reader.next()) {
+                bh.consume(StudentCsv.read(reader));
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeOpenCsv() throws Exception {
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8))) {
+            writer.writeNext(StudentCsv.EXPORT_HEADER);
+            for (Student s : students) {
+                writer.writeNext(new String[]{s.getStudentId().toString(), s.getFirstName(), s.getLastName(),
+                        s.getDob().toString(), s.getStudentClass(), s.getScore().toString()});
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeCodec() throws Exception {
+        try (CsvWriter writer = new CsvWriter(OutputStream.nullOutputStream())) {
+            writer.writeRow(StudentCsv.EXPORT_HEADER);
+            for (Student s : students) {
+                StudentCsv.write(writer, s);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.csv.CsvReader;
+import com.kidula.studentdataprocessor.csv.StudentCsv;
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import com.kidula.studentdataprocessor.transform.TransformRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the ingest path into its CPU stages: tokenizing the CSV, mapping rows to Student entities,
+ * and the row checks DataUploadService runs before mapping. The database write is not included.
+ * parseAndMap adds the default +5 by hand; the transform benchmarks run the same and a longer
+ * chain compiled by TransformCompiler, to compare against it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class CsvIngestBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private byte[] csv;
+
+    private final TransformChain defaultChain = new TransformCompiler().compile("score = score + 5");
+    private final TransformChain longChain = new TransformCompiler().compile(
+            "score = clamp(score + 5, 0, 100); class = map('Class1': 'A', 'Class2': 'B'); filter score >= 0");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        csv = BenchmarkData.csv(BenchmarkData.students(rows));
+    }
+
+    @Benchmark
+    public long parse() throws Exception {
+        long fields = 0;
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            while (reader.next()) {
+                fields += reader.getFieldCount();
+            }
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public void parseAndMap(Blackhole bh) throws Exception {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            reader.next(); // header
+            while (reader.next()) {
+                Student student = StudentCsv.read(reader);
+                student.setScore(student.getScore() + 5);
+                bh.consume(student);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseMapAndTransform(Blackhole bh) throws Exception {
+        transform(defaultChain, bh);
+    }
+
+    @Benchmark
+    public void parseMapAndTransformChain(Blackhole bh) throws Exception {
+        transform(longChain, bh);
+    }
+
+    private void transform(TransformChain chain, Blackhole bh) throws Exception {
+        TransformRow row = new TransformRow();
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            reader.next(); // header
+            while (reader.next()) {
+                Student student = StudentCsv.read(reader);
+                if (chain.apply(student, row)) {
+                    bh.consume(student);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseValidateAndMap(Blackhole bh) throws Exception {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            reader.next(); // header
+            while (reader.next()) {
+                if (StudentCsv.check(reader) == null) {
+                    bh.consume(StudentCsv.read(reader));
+                }
+            }
+        }
+    }
+}
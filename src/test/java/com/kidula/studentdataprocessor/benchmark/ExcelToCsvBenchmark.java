@@ -0,0 +1,53 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.service.DataGenerationService;
+import com.kidula.studentdataprocessor.service.DataProcessingService;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a generated N-row workbook to CSV through the SAX path of DataProcessingService.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ExcelToCsvBenchmark {
+
+    @Param({"10000", "100000"})
+    private long rows;
+
+    private final DataProcessingService service = new DataProcessingService();
+    private File workbook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workbook = File.createTempFile("excel-bench", ".xlsx");
+        workbook.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(workbook)) {
+            new DataGenerationService().writeWorkbook(out, rows, new Random(BenchmarkData.SEED),
+                    new TransformCompiler().compile("score = random(55, 75)"), i -> {
+            });
+        }
+    }
+
+    @Benchmark
+    public void convert() throws Exception {
+        service.convertToCsv(workbook, OutputStream.nullOutputStream(),
+                new TransformCompiler().compile("score = score + 10"), rowNum -> {
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workbook.delete();
+    }
+}
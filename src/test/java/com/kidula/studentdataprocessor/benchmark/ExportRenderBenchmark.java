@@ -0,0 +1,46 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.service.ExportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders N students to each export format through ExportService, without the database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ExportRenderBenchmark {
+
+    @Param({"xlsx", "csv", "pdf"})
+    private String format;
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private final ExportService service = new ExportService();
+    private List<Student> students;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        students = BenchmarkData.students(rows);
+    }
+
+    @Benchmark
+    public void render() throws Exception {
+        OutputStream out = OutputStream.nullOutputStream();
+        switch (format) {
+            case "xlsx" -> service.renderExcel(students, out);
+            case "csv" -> service.renderCsv(students, out);
+            case "pdf" -> service.renderPdf(students, out);
+            default -> throw new IllegalArgumentException(format);
+        }
+    }
+}
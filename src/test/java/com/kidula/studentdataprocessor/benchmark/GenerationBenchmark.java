@@ -0,0 +1,34 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.service.DataGenerationService;
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates an N-row student workbook with a fixed seed, as DataGenerationService does.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class GenerationBenchmark {
+
+    @Param({"10000", "100000"})
+    private long rows;
+
+    private final DataGenerationService service = new DataGenerationService();
+    private final TransformChain transforms = new TransformCompiler().compile("score = random(55, 75)");
+
+    @Benchmark
+    public void generateWorkbook() throws Exception {
+        service.writeWorkbook(OutputStream.nullOutputStream(), rows, new Random(BenchmarkData.SEED), transforms, i -> {
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.service.StudentPdfWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a PDF of N rows through StudentPdfWriter. Reported per run: time, pages and file size.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class PdfRenderBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<Student> students;
+    private File output;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class OutputSize {
+        public long fileBytes;
+        public long pages;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Render a fixed page of rows repeatedly so the heap holds the PDF, not the input
+        students = new ArrayList<>();
+        for (int i = 1; i <= StudentPdfWriter.ROWS_PER_PAGE; i++) {
+            students.add(new Student((long) i, "First" + i, "Last" + i,
+                    LocalDate.of(2000, 1, 1).plusDays(i), "Class" + (i % 5 + 1), 55 + i % 21));
+        }
+        output = File.createTempFile("pdf-bench", ".pdf");
+        output.deleteOnExit();
+    }
+
+    @Benchmark
+    public void render(OutputSize size) throws Exception {
+        try (StudentPdfWriter writer = new StudentPdfWriter(true)) {
+            for (int i = 0; i < rows; i++) {
+                writer.writeRow(students.get(i % students.size()));
+            }
+            writer.save(output.getPath());
+            size.pages = writer.getPageCount();
+        }
+        size.fileBytes = output.length();
+    }
+}
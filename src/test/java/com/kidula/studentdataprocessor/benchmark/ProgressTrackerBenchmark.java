@@ -0,0 +1,45 @@
+package com.kidula.studentdataprocessor.benchmark;
+
+import com.kidula.studentdataprocessor.service.ProgressTracker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one ProgressTracker.updateProgress call, with and without the WebSocket broadcast.
+ * The broadcast goes to a channel that drops messages, so only conversion and dispatch are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProgressTrackerBenchmark {
+
+    @Param({"false", "true"})
+    private boolean broadcast;
+
+    private ProgressTracker tracker;
+    private long startTime;
+    private long current;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new ProgressTracker();
+        if (broadcast) {
+            SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+            template.setMessageConverter(new MappingJackson2MessageConverter());
+            ReflectionTestUtils.setField(tracker, "messagingTemplate", template);
+        }
+        startTime = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public void updateProgress() {
+        tracker.updateProgress("benchmark-task", ++current, 1_000_000, startTime);
+    }
+}
@@ -0,0 +1,182 @@
+package com.kidula.studentdataprocessor.columnar;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes students to .stc files with small row groups and reads them back: encodings, statistics,
+ * merged parts and the row groups a ColumnarFilter skips.
+ */
+class StudentColumnarRoundTripTest {
+
+    private static final int GROUP_ROWS = 100;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void severalRowGroupsRoundTrip() throws IOException {
+        List<Student> students = students(1, 350);
+        Path file = write("students.stc", students);
+
+        try (StudentColumnarReader reader = StudentColumnarReader.open(file)) {
+            assertEquals(4, reader.getRowGroups().size());
+            assertEquals(350, reader.getRowCount());
+            assertEquals(List.of(100, 100, 100, 50), reader.getRowGroups().stream().map(StudentColumnar.RowGroup::rows).toList());
+
+            StudentColumnar.RowGroup first = reader.getRowGroups().get(0);
+            assertEquals(1, first.minStudentId());
+            assertEquals(100, first.maxStudentId());
+            assertEquals(55, first.minScore());
+            assertEquals(75, first.maxScore());
+            assertEquals(students, readAll(reader));
+        }
+    }
+
+    @Test
+    void textColumnsUsePlainOrDictionaryEncoding() throws IOException {
+        Path file = write("students.stc", students(1, GROUP_ROWS));
+
+        try (StudentColumnarReader reader = StudentColumnarReader.open(file)) {
+            byte[] encodings = reader.getRowGroups().get(0).encodings();
+            // Names are all distinct, classes repeat five values
+            assertEquals(StudentColumnar.PLAIN, encodings[StudentColumnar.FIRST_NAME]);
+            assertEquals(StudentColumnar.PLAIN, encodings[StudentColumnar.LAST_NAME]);
+            assertEquals(StudentColumnar.DICTIONARY, encodings[StudentColumnar.CLASS]);
+            assertEquals(StudentColumnar.DELTA, encodings[StudentColumnar.STUDENT_ID]);
+            assertEquals(StudentColumnar.FRAME_OF_REFERENCE, encodings[StudentColumnar.SCORE]);
+            assertEquals(students(1, GROUP_ROWS), readAll(reader));
+        }
+    }
+
+    @Test
+    void unorderedIdsAndNegativeScoresRoundTrip() throws IOException {
+        List<Student> students = List.of(
+                student(500, "Zoë", "Ström", LocalDate.of(2001, 5, 1), "Class1", 10),
+                student(3, "José", "Núñez", LocalDate.of(1999, 1, 31), "Class1", -40),
+                student(Long.MAX_VALUE, "", "日本", LocalDate.of(2010, 12, 31), "Class1", Integer.MAX_VALUE),
+                student(Long.MIN_VALUE, "A", "B", LocalDate.of(1900, 1, 1), "Class1", Integer.MIN_VALUE),
+                student(-7, "A", "B", LocalDate.of(1900, 1, 1), "Class1", 0));
+        Path file = write("unordered.stc", students);
+
+        try (StudentColumnarReader reader = StudentColumnarReader.open(file)) {
+            StudentColumnar.RowGroup group = reader.getRowGroups().get(0);
+            assertEquals(Long.MIN_VALUE, group.minStudentId());
+            assertEquals(Long.MAX_VALUE, group.maxStudentId());
+            assertEquals(Integer.MIN_VALUE, group.minScore());
+            assertEquals(LocalDate.of(1900, 1, 1), group.minDob());
+            assertEquals(students, readAll(reader));
+        }
+    }
+
+    @Test
+    void emptyFileHasNoRowGroups() throws IOException {
+        Path file = write("empty.stc", List.of());
+
+        assertEquals(16, Files.size(file));
+        try (StudentColumnarReader reader = StudentColumnarReader.open(file)) {
+            assertEquals(0, reader.getRowCount());
+            assertTrue(reader.getRowGroups().isEmpty());
+        }
+    }
+
+    @Test
+    void notAColumnarFileFails() throws IOException {
+        Path file = Files.writeString(dir.resolve("students.csv"), "Student ID,First Name\n1,Ada\n");
+        assertThrows(IOException.class, () -> StudentColumnarReader.open(file).close());
+    }
+
+    @Test
+    void mergeConcatenatesParts() throws IOException {
+        List<Path> parts = List.of(
+                write("part0.stc", students(1, 150)),
+                write("empty.stc", List.of()),
+                write("part1.stc", students(151, 230)),
+                write("part2.stc", students(231, 231)));
+        Path merged = dir.resolve("merged.stc");
+        try (OutputStream out = Files.newOutputStream(merged)) {
+            assertEquals(231, StudentColumnar.merge(parts, out));
+        }
+
+        try (StudentColumnarReader reader = StudentColumnarReader.open(merged)) {
+            assertEquals(List.of(100, 50, 80, 1), reader.getRowGroups().stream().map(StudentColumnar.RowGroup::rows).toList());
+            assertEquals(students(1, 231), readAll(reader));
+        }
+    }
+
+    @Test
+    void filterSkipsRowGroupsByStatistics() throws IOException {
+        List<Student> students = students(1, 1000);
+        Path file = write("students.stc", students);
+        ColumnarFilter ids = new ColumnarFilter(250L, 420L, null, null, null, null);
+        ColumnarFilter impossibleScore = new ColumnarFilter(null, null, 90, null, null, null);
+        ColumnarFilter firstDob = new ColumnarFilter(null, null, null, null, null, LocalDate.of(2000, 1, 1));
+
+        try (StudentColumnarReader reader = StudentColumnarReader.open(file)) {
+            assertEquals(10, reader.getRowGroups(ColumnarFilter.ALL).size());
+            assertEquals(0, reader.getRowGroups(impossibleScore).size());
+
+            List<StudentColumnar.RowGroup> groups = reader.getRowGroups(ids);
+            assertEquals(List.of(201L, 301L, 401L), groups.stream().map(StudentColumnar.RowGroup::minStudentId).toList());
+            List<Student> matching = new ArrayList<>();
+            for (StudentColumnar.RowGroup group : groups) {
+                for (Student student : reader.readRowGroup(group)) {
+                    if (ids.matches(student)) {
+                        matching.add(student);
+                    }
+                }
+            }
+            assertEquals(students.subList(249, 420), matching);
+
+            // Only the groups holding studentIds 400 and 800 reach back to the first dob
+            assertEquals(List.of(301L, 701L),
+                    reader.getRowGroups(firstDob).stream().map(StudentColumnar.RowGroup::minStudentId).toList());
+        }
+    }
+
+    private Path write(String name, List<Student> students) throws IOException {
+        Path file = dir.resolve(name);
+        try (StudentColumnarWriter writer = new StudentColumnarWriter(Files.newOutputStream(file), GROUP_ROWS)) {
+            for (Student student : students) {
+                writer.write(student);
+            }
+            assertEquals(students.size(), writer.getRowCount());
+        }
+        return file;
+    }
+
+    private static List<Student> readAll(StudentColumnarReader reader) throws IOException {
+        List<Student> students = new ArrayList<>();
+        for (StudentColumnar.RowGroup group : reader.getRowGroups()) {
+            students.addAll(reader.readRowGroup(group));
+        }
+        return students;
+    }
+
+    private static List<Student> students(int from, int to) {
+        List<Student> students = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            students.add(student(i, "First" + i, "Last" + i, LocalDate.of(2000, 1, 1).plusDays(i % 400),
+                    "Class" + (i % 5 + 1), 55 + i % 21));
+        }
+        return students;
+    }
+
+    private static Student student(long id, String firstName, String lastName, LocalDate dob, String studentClass,
+                                   int score) {
+        return new Student(id, firstName, lastName, dob, studentClass, score);
+    }
+}
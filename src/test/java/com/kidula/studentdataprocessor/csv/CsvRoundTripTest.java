@@ -0,0 +1,219 @@
+package com.kidula.studentdataprocessor.csv;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes rows with CsvWriter and reads them back with CsvReader, and parses hand-written input for
+ * the cases only other writers produce (CRLF, blank lines, lenient quoting). Small buffers make
+ * rows and multi-byte characters straddle buffer refills.
+ */
+class CsvRoundTripTest {
+
+    @Test
+    void quotedFieldsRoundTrip() throws IOException {
+        String[] row = {"plain", "a,b", "say \"hi\"", "\"", "line\nbreak", "cr\rlf\r\n", "", " padded "};
+        byte[] csv = write(writer -> writer.writeRow(row));
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"\"\"\",\"line\nbreak\",\"cr\rlf\r\n\",, padded \n",
+                new String(csv, StandardCharsets.UTF_8));
+        assertEquals(List.of(List.of(row)), readAll(csv, 7));
+    }
+
+    @Test
+    void crlfEndingsAndBlankLines() throws IOException {
+        String csv = "a,b\r\n\"x\r\ny\",z\r\n\r\n\nlast,row\rcr,only";
+
+        assertEquals(List.of(
+                List.of("a", "b"),
+                List.of("x\r\ny", "z"),
+                List.of(""),
+                List.of(""),
+                List.of("last", "row"),
+                List.of("cr", "only")), readAll(bytes(csv), 3));
+    }
+
+    @Test
+    void trailingNewlineEndsTheLastRow() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b")), readAll(bytes("a\nb\n"), 64));
+        assertEquals(List.of(List.of("a"), List.of("b")), readAll(bytes("a\nb"), 64));
+        assertEquals(List.of(List.of("a"), List.of("")), readAll(bytes("a\n\n"), 64));
+        assertEquals(List.of(), readAll(bytes(""), 64));
+    }
+
+    @Test
+    void textAfterClosingQuoteIsKept() throws IOException {
+        assertEquals(List.of(List.of("ab c", "d")), readAll(bytes("\"ab\" c,d\n"), 64));
+    }
+
+    @Test
+    void unterminatedQuoteFails() throws IOException {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes("a,\"open\n")))) {
+            assertThrows(CsvFormatException.class, reader::next);
+        }
+    }
+
+    @Test
+    void longExtremesRoundTrip() throws IOException {
+        long[] values = {0, 7, -7, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        byte[] csv = write(writer -> {
+            for (long value : values) {
+                writer.writeLong(value);
+            }
+            writer.endRow();
+        });
+
+        assertEquals("0,7,-7,2147483647,-2147483648,9223372036854775807,-9223372036854775808\n",
+                new String(csv, StandardCharsets.UTF_8));
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv), 5)) {
+            assertTrue(reader.next());
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(values[i], reader.getLong(i));
+            }
+        }
+    }
+
+    @Test
+    void numbersOutOfRangeOrMalformedFail() throws IOException {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes(
+                "9223372036854775808,-9223372036854775809,99999999999999999999,2147483648,-,+,1.5, 1,+42\n")))) {
+            assertTrue(reader.next());
+            assertThrows(CsvFormatException.class, () -> reader.getLong(0));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(1));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(2));
+            assertEquals(2147483648L, reader.getLong(3));
+            assertThrows(CsvFormatException.class, () -> reader.getInt(3));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(4));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(5));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(6));
+            assertThrows(CsvFormatException.class, () -> reader.getLong(7));
+            assertEquals(42, reader.getInt(8));
+        }
+    }
+
+    @Test
+    void nonAsciiTextAcrossBufferBoundaries() throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(List.of("Zoë" + i, "Ångström, \"Å\"", "日本語テキスト", "emoji 😀" + "x".repeat(i % 70)));
+        }
+        byte[] csv = write(writer -> {
+            for (List<String> row : rows) {
+                writer.writeRow(row.toArray(new String[0]));
+            }
+        }, 64);
+
+        for (int bufferSize : new int[]{1, 2, 3, 5, 4096}) {
+            assertEquals(rows, readAll(csv, bufferSize));
+        }
+    }
+
+    @Test
+    void studentsRoundTrip() throws IOException {
+        List<Student> students = List.of(
+                new Student(1L, "Ada", "Lovelace", LocalDate.of(1815, 12, 10), "Class1", 75),
+                new Student(Long.MAX_VALUE, "José, Jr.", "O\"Brien", LocalDate.of(2000, 2, 29), "Class5", -3),
+                new Student(42L, "Zoë", "Ström", LocalDate.of(9999, 12, 31), "Class2", 0));
+        byte[] csv = write(writer -> {
+            writer.writeRow(StudentCsv.EXPORT_HEADER);
+            for (Student student : students) {
+                StudentCsv.write(writer, student);
+            }
+        });
+
+        List<Student> read = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv), 16)) {
+            assertTrue(reader.next());
+            while (reader.next()) {
+                assertNull(StudentCsv.check(reader));
+                read.add(StudentCsv.read(reader));
+            }
+        }
+        assertEquals(students.size(), read.size());
+        for (int i = 0; i < students.size(); i++) {
+            Student expected = students.get(i);
+            Student actual = read.get(i);
+            assertEquals(expected.getStudentId(), actual.getStudentId());
+            assertEquals(expected.getFirstName(), actual.getFirstName());
+            assertEquals(expected.getLastName(), actual.getLastName());
+            assertEquals(expected.getDob(), actual.getDob());
+            assertEquals(expected.getStudentClass(), actual.getStudentClass());
+            assertEquals(expected.getScore(), actual.getScore());
+        }
+    }
+
+    @Test
+    void malformedDatesFail() throws IOException {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes(
+                "2020-1-05,2020/01/05,20x0-01-05,2020-01-5 ,,2020-13-01,2021-02-29,2020-02-29\n")))) {
+            assertTrue(reader.next());
+            for (int field = 0; field <= 4; field++) {
+                int f = field;
+                assertThrows(CsvFormatException.class, () -> reader.getDate(f));
+            }
+            // Well-formed but impossible dates are rejected by LocalDate
+            assertThrows(DateTimeException.class, () -> reader.getDate(5));
+            assertThrows(DateTimeException.class, () -> reader.getDate(6));
+            assertEquals(LocalDate.of(2020, 2, 29), reader.getDate(7));
+        }
+    }
+
+    @Test
+    void moreThanSixtyFourFieldsFail() throws IOException {
+        String sixtyFour = ",".repeat(63);
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes(sixtyFour + "\n" + sixtyFour + ",\n")))) {
+            assertTrue(reader.next());
+            assertEquals(64, reader.getFieldCount());
+            assertThrows(CsvFormatException.class, () -> reader.getString(64));
+            assertThrows(CsvFormatException.class, reader::next);
+        }
+    }
+
+    private interface Rows {
+        void write(CsvWriter writer) throws IOException;
+    }
+
+    private static byte[] write(Rows rows) throws IOException {
+        return write(rows, 1 << 16);
+    }
+
+    private static byte[] write(Rows rows, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter writer = new CsvWriter(out, bufferSize)) {
+            rows.write(writer);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<List<String>> readAll(byte[] csv, int bufferSize) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv), bufferSize)) {
+            while (reader.next()) {
+                List<String> row = new ArrayList<>();
+                for (int i = 0; i < reader.getFieldCount(); i++) {
+                    row.add(reader.getString(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,99 @@
+package com.kidula.studentdataprocessor.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Fills maps past their initial capacity and against a HashMap, with colliding, negative and
+ * extreme keys, since every long is a valid key and only the value -1 marks an empty slot.
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void putIfAbsentKeepsTheFirstValue() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(-1, map.putIfAbsent(42, 7));
+        assertEquals(7, map.putIfAbsent(42, 9));
+        assertEquals(7, map.get(42));
+        assertEquals(-1, map.get(43));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void growsFromTheSmallestTable() {
+        LongIntHashMap map = new LongIntHashMap(0);
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(-1, map.putIfAbsent(i, i));
+        }
+        assertEquals(100000, map.size());
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, map.get(i));
+        }
+        assertEquals(-1, map.get(100000));
+    }
+
+    @Test
+    void collidingKeysProbeAndSurviveGrowth() {
+        // Multiples of a large power of two share their low bits, so all of them hash near each
+        // other unless the finalizer spreads the high bits; either way every probe chain must hold
+        LongIntHashMap map = new LongIntHashMap(2);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(-1, map.putIfAbsent((long) i << 40, i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, map.get((long) i << 40));
+            assertEquals(i, map.putIfAbsent((long) i << 40, 0));
+        }
+        assertEquals(-1, map.get(5000L << 40));
+        assertEquals(5000, map.size());
+    }
+
+    @Test
+    void negativeAndExtremeKeys() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        long[] keys = {0, -1, -2, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1};
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(-1, map.putIfAbsent(keys[i], i));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, map.get(keys[i]), "key " + keys[i]);
+        }
+        assertEquals(keys.length, map.size());
+        assertEquals(-1, map.get(-3));
+    }
+
+    @Test
+    void matchesHashMapOnRandomKeys() {
+        Random random = new Random(5);
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            // A narrow range forces repeats
+            long key = random.nextBoolean() ? random.nextLong() : random.nextInt(20000) - 10000;
+            Integer previous = expected.putIfAbsent(key, i);
+            assertEquals(previous == null ? -1 : previous, map.putIfAbsent(key, i));
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(1, Integer.MIN_VALUE));
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(1));
+
+        assertEquals(-1, map.putIfAbsent(1, 0));
+        assertEquals(-1, map.putIfAbsent(2, Integer.MAX_VALUE));
+        assertEquals(0, map.get(1));
+        assertEquals(Integer.MAX_VALUE, map.get(2));
+    }
+}
@@ -0,0 +1,54 @@
+package com.kidula.studentdataprocessor.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Heap high-water mark and GC time over a scenario. The high-water mark is the sum of the heap
+ * pools' own peak counters, so short spikes are not missed but the figure is an upper bound. The
+ * app and the HTTP clients share the JVM, so the numbers include client overhead.
+ */
+class JvmSampler {
+
+    private long gcCountAtStart;
+    private long gcMillisAtStart;
+
+    void start() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        gcCountAtStart = gcCount();
+        gcMillisAtStart = gcMillis();
+    }
+
+    Map<String, Object> stop() {
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("heapHighWaterMb", peakHeap / (1024 * 1024));
+        result.put("gcCount", gcCount() - gcCountAtStart);
+        result.put("gcTimeMs", gcMillis() - gcMillisAtStart);
+        return result;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+    }
+}
@@ -0,0 +1,67 @@
+package com.kidula.studentdataprocessor.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects request latencies per endpoint and summarizes them as throughput and percentiles.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long startNanos, long endNanos) {
+        series.computeIfAbsent(endpoint, e -> new Series()).add(startNanos, endNanos);
+    }
+
+    Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        series.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> result.put(e.getKey(), e.getValue().summary()));
+        return result;
+    }
+
+    private static class Series {
+        private final List<Long> latencies = new ArrayList<>();
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd = Long.MIN_VALUE;
+
+        synchronized void add(long startNanos, long endNanos) {
+            latencies.add(endNanos - startNanos);
+            firstStart = Math.min(firstStart, startNanos);
+            lastEnd = Math.max(lastEnd, endNanos);
+        }
+
+        synchronized Map<String, Object> summary() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            double wallSeconds = Math.max(lastEnd - firstStart, 1) / 1e9;
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", sorted.size());
+            summary.put("throughputPerSec", round(sorted.size() / wallSeconds));
+            summary.put("p50Ms", millis(percentile(sorted, 0.50)));
+            summary.put("p99Ms", millis(percentile(sorted, 0.99)));
+            summary.put("maxMs", millis(sorted.get(sorted.size() - 1)));
+            return summary;
+        }
+
+        private static long percentile(List<Long> sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+
+        private static double millis(long nanos) {
+            return round(nanos / 1e6);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
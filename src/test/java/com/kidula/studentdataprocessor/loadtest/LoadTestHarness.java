@@ -0,0 +1,276 @@
+package com.kidula.studentdataprocessor.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kidula.studentdataprocessor.StudentdataprocessorApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Starts the application against H2 in PostgreSQL mode (or the database in -Dloadtest.jdbc-url)
+ * and replays the /api/data -> /api/students flow over HTTP. Each scenario reports throughput and
+ * p50/p99 latency per endpoint plus heap high-water mark and GC time. Run with -Ploadtest.
+ *
+ * Settings (system properties): loadtest.rows, loadtest.concurrency, loadtest.requests,
+ * loadtest.scenarios (generate,convert,upload,reads,exports,mixed), loadtest.report, loadtest.jdbc-url,
+ * loadtest.jdbc-user, loadtest.jdbc-password.
+ */
+public class LoadTestHarness {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] CLASSES = {"Class1", "Class2", "Class3", "Class4", "Class5"};
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String baseUrl;
+    private final long rows;
+    private final int concurrency;
+    private final int requests;
+
+    private Path generatedFile;
+    private Path convertedFile;
+
+    LoadTestHarness(String baseUrl, long rows, int concurrency, int requests) {
+        this.baseUrl = baseUrl;
+        this.rows = rows;
+        this.concurrency = concurrency;
+        this.requests = requests;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long rows = Long.getLong("loadtest.rows", 100_000);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+        int requests = Integer.getInteger("loadtest.requests", 500);
+        List<String> scenarios = List.of(System.getProperty("loadtest.scenarios", "generate,convert,upload,reads,exports,mixed").split(","));
+        Path report = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+        Path storage = Files.createTempDirectory("loadtest");
+
+        // Passed as command-line arguments so they override application.properties
+        String[] appArgs = appProperties(storage).entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(StudentdataprocessorApplication.class)
+                .run(appArgs);
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadTestHarness harness = new LoadTestHarness("http://localhost:" + port, rows, concurrency, requests);
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("settings", Map.of("rows", rows, "concurrency", concurrency, "requests", requests,
+                    "database", jdbcUrl() == null ? "h2" : jdbcUrl(),
+                    "maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+            for (String scenario : scenarios) {
+                results.put(scenario.trim(), harness.run(scenario.trim()));
+            }
+
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            JSON.writerWithDefaultPrettyPrinter().writeValue(report.toFile(), results);
+            System.out.println(JSON.writerWithDefaultPrettyPrinter().writeValueAsString(results));
+            System.out.println("Report written to " + report.toAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<String, Object> appProperties(Path storage) {
+        Map<String, Object> props = new LinkedHashMap<>();
+        props.put("server.port", 0);
+        props.put("file.storage.path", storage.toString() + File.separator);
+        String jdbcUrl = jdbcUrl();
+        if (jdbcUrl == null) {
+            props.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                    + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+            props.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            props.put("spring.datasource.username", "sa");
+            props.put("spring.datasource.password", "");
+            props.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+            props.put("spring.jpa.hibernate.ddl-auto", "create");
+        } else {
+            props.put("spring.datasource.url", jdbcUrl);
+            props.put("spring.datasource.username", System.getProperty("loadtest.jdbc-user", "postgres"));
+            props.put("spring.datasource.password", System.getProperty("loadtest.jdbc-password", ""));
+        }
+        return props;
+    }
+
+    // Blank when the profile does not set it
+    private static String jdbcUrl() {
+        String url = System.getProperty("loadtest.jdbc-url");
+        return url == null || url.isBlank() ? null : url;
+    }
+
+    Map<String, Object> run(String scenario) throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        JvmSampler sampler = new JvmSampler();
+        sampler.start();
+        long start = System.nanoTime();
+
+        switch (scenario) {
+            case "generate" -> generatedFile = Path.of(runJob(recorder, "generate",
+                    post("/api/data/generate?numberOfRecords=" + rows), "/api/data/progress/").get("filePath").asText());
+            case "convert" -> convertedFile = Path.of(runJob(recorder, "process-excel",
+                    multipart("/api/data/process-excel", requireFile(generatedFile, "generate")), "/api/data/progress/")
+                    .get("filePath").asText());
+            case "upload" -> runJob(recorder, "upload-csv",
+                    multipart("/api/data/upload-csv", requireFile(convertedFile, "convert")), "/api/data/progress/");
+            case "reads" -> concurrentReads(recorder);
+            case "exports" -> concurrentExports(recorder);
+            case "mixed" -> readsDuringExports(recorder);
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("wallMs", (System.nanoTime() - start) / 1_000_000);
+        result.put("endpoints", recorder.summary());
+        result.put("jvm", sampler.stop());
+        return result;
+    }
+
+    private void concurrentReads(LatencyRecorder recorder) throws Exception {
+        long pages = Math.max(1, rows / 50);
+        Random random = new Random(42);
+        List<HttpRequest> calls = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            if (i % 4 == 3) {
+                calls.add(get("/api/students?size=50&studentClass=" + CLASSES[random.nextInt(CLASSES.length)]
+                        + "&page=" + random.nextInt(100)));
+            } else {
+                calls.add(get("/api/students?size=50&page=" + (long) (random.nextDouble() * pages)));
+            }
+        }
+        runConcurrently(calls.stream().map(request -> (Call) () -> {
+            String endpoint = request.uri().getQuery().contains("studentClass") ? "GET /api/students?studentClass" : "GET /api/students";
+            send(recorder, endpoint, request);
+            return null;
+        }).toList());
+    }
+
+    private void concurrentExports(LatencyRecorder recorder) throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (String format : new String[]{"excel", "csv", "pdf"}) {
+            calls.add(() -> runJob(recorder, "export/all/" + format, post("/api/students/export/all/" + format),
+                    "/api/students/export/progress/"));
+        }
+        for (int i = 0; i < Math.max(1, requests / 10); i++) {
+            String studentClass = CLASSES[i % CLASSES.length];
+            String format = i % 2 == 0 ? "csv" : "excel";
+            calls.add(() -> send(recorder, "GET /api/students/export/" + format,
+                    get("/api/students/export/" + format + "?studentClass=" + studentClass)));
+        }
+        runConcurrently(calls);
+    }
+
+    // The reads of "reads" while the exports of "exports" run; the bulk jobs use their own connection
+    // pools, so the read latencies should stay close to those of "reads"
+    private void readsDuringExports(LatencyRecorder recorder) throws Exception {
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> exports = background.submit(() -> {
+                concurrentExports(recorder);
+                return null;
+            });
+            concurrentReads(recorder);
+            exports.get();
+        } finally {
+            background.shutdownNow();
+        }
+    }
+
+    // Starts an async job and polls it; the job's end-to-end time is recorded under "job <name>"
+    private JsonNode runJob(LatencyRecorder recorder, String name, HttpRequest start, String progressPath) throws Exception {
+        long startNanos = System.nanoTime();
+        JsonNode started = JSON.readTree(send(recorder, start.method() + " " + name, start));
+        String taskId = started.get("taskId").asText();
+        while (true) {
+            Thread.sleep(100);
+            JsonNode progress = JSON.readTree(send(recorder, "GET progress", get(progressPath + taskId)));
+            String status = progress.get("status").asText();
+            if ("COMPLETED".equals(status)) {
+                recorder.record("job " + name, startNanos, System.nanoTime());
+                return progress;
+            }
+            // NOT_FOUND until the job reports its first progress
+            if (!"RUNNING".equals(status) && !"NOT_FOUND".equals(status)) {
+                throw new IllegalStateException(name + " ended as " + status + ": " + progress.path("message").asText());
+            }
+        }
+    }
+
+    private String send(LatencyRecorder recorder, String endpoint, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        recorder.record(endpoint, start, System.nanoTime());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(endpoint + " returned " + response.statusCode());
+        }
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    private void runConcurrently(List<Call> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Call call : calls) {
+                futures.add(pool.submit(call));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest multipart(String path, Path file) throws IOException {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+                + file.getFileName() + "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(head),
+                        HttpRequest.BodyPublishers.ofFile(file),
+                        HttpRequest.BodyPublishers.ofByteArray(tail)))
+                .build();
+    }
+
+    private static Path requireFile(Path file, String scenario) {
+        if (file == null) {
+            throw new IllegalStateException("Run the " + scenario + " scenario first");
+        }
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface Call extends Callable<Object> {
+    }
+}
@@ -0,0 +1,54 @@
+package com.kidula.studentdataprocessor.repository;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that saveAll is batched: with IDENTITY ids Hibernate prepared one INSERT per row.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class StudentInsertBatchingTest {
+
+    private static final int ROWS = 2500;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void saveAllUsesOneStatementPerBatch() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 1; i <= ROWS; i++) {
+            students.add(new Student((long) i, "First" + i, "Last" + i, LocalDate.of(2005, 1, 1), "Class1", 70));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        studentRepository.saveAll(students);
+        studentRepository.flush();
+
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        // 3 sequence fetches (allocation 1000) + 3 insert batches (batch_size 1000)
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 6, "Expected at most 6 prepared statements for " + ROWS + " rows, got " + statements);
+    }
+}
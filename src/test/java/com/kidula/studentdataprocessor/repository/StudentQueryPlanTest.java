@@ -0,0 +1,235 @@
+package com.kidula.studentdataprocessor.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts the plans of the listing and name search queries on a real PostgreSQL. The statements
+ * are captured as the repositories send them, with their parameters, and then explained. The database is wiped, so point
+ * it at a scratch database:
+ * mvn test -Dtest=StudentQueryPlanTest -Dexplain.jdbc-url=jdbc:postgresql://localhost:5432/plan_test
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@EnabledIfSystemProperty(named = "explain.jdbc-url", matches = ".+")
+class StudentQueryPlanTest {
+
+    private static final int ROWS = 200_000;
+    private static final Sort BY_ID = Sort.by("id").ascending();
+    private static final ThreadLocal<List<Executed>> CAPTURED = new ThreadLocal<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StudentNameSearch studentNameSearch;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        registry.add("spring.datasource.url", () -> System.getProperty("explain.jdbc-url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("explain.jdbc-user", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("explain.jdbc-password", ""));
+        String storage = Files.createTempDirectory("plan-test").toString() + "/";
+        registry.add("file.storage.path", () -> storage);
+    }
+
+    @BeforeAll
+    static void loadOnce(@Autowired JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("TRUNCATE TABLE students");
+        jdbcTemplate.execute("INSERT INTO students (id, student_id, first_name, last_name, dob, student_class, score) "
+                + "SELECT g, g, 'First' || g, 'Last' || g, DATE '2000-01-01' + (g % 4000), 'Class' || (g % 5 + 1), 55 + g % 21 "
+                + "FROM generate_series(1, " + ROWS + ") g");
+        // Sets the visibility map, which index-only scans depend on
+        jdbcTemplate.execute("VACUUM ANALYZE students");
+    }
+
+    @Test
+    void classFilteredPageAndCountAreIndexOnly() {
+        List<Executed> statements = capture(() -> studentRepository.findAll(
+                StudentSpecifications.matching(null, "Class3"), PageRequest.of(2, 50, BY_ID)));
+
+        String page = explain(statement(statements, false));
+        assertTrue(page.contains("Index Only Scan"), page);
+        assertFalse(hasNode(page, "Seq Scan"), page);
+        assertFalse(hasNode(page, "Sort"), page);
+
+        String count = explain(statement(statements, true));
+        assertTrue(count.contains("Index Only Scan"), count);
+        assertFalse(hasNode(count, "Seq Scan"), count);
+    }
+
+    @Test
+    void studentIdLookupUsesIndex() {
+        List<Executed> statements = capture(() -> studentRepository.findAll(
+                StudentSpecifications.matching(4242L, null), PageRequest.of(0, 10, BY_ID)));
+
+        String plan = explain(statement(statements, false));
+        assertTrue(plan.contains("Index"), plan);
+        assertFalse(hasNode(plan, "Seq Scan"), plan);
+    }
+
+    @Test
+    void unfilteredPageFollowsPrimaryKey() {
+        List<Executed> statements = capture(() -> studentRepository.findAll(
+                StudentSpecifications.matching(null, null), PageRequest.of(2, 50, BY_ID)));
+
+        String plan = explain(statement(statements, false));
+        assertFalse(hasNode(plan, "Seq Scan"), plan);
+        assertFalse(hasNode(plan, "Sort"), plan);
+    }
+
+    @Test
+    void namePrefixSearchWalksPrefixIndex() {
+        // More than 20 first names start with first123, so only the first tier runs
+        List<Executed> statements = capture(() -> studentNameSearch.search("First123", null, 20));
+        assertEquals(1, statements.size(), statements::toString);
+
+        String plan = explain(statements.get(0));
+        assertTrue(plan.contains("Index Scan"), plan);
+        assertFalse(hasNode(plan, "Seq Scan"), plan);
+        assertFalse(hasNode(plan, "Sort"), plan);
+    }
+
+    @Test
+    void nameFragmentSearchUsesTrigramIndex() {
+        // No name starts with the query, so both prefix tiers come up empty before the fragment tier
+        List<Executed> statements = capture(() -> studentNameSearch.search("t4242 la", null, 20));
+        assertEquals(3, statements.size(), statements::toString);
+
+        for (Executed statement : statements) {
+            String plan = explain(statement);
+            assertFalse(hasNode(plan, "Seq Scan"), plan);
+        }
+        String fragment = explain(statements.get(2));
+        assertTrue(fragment.contains("Bitmap Index Scan"), fragment);
+    }
+
+    // Matches plan nodes only; a partitioned table's Merge Append also prints a "Sort Key" line
+    private static boolean hasNode(String plan, String node) {
+        return Pattern.compile("(^|->\\s*)" + node + "\\b(?! Key)", Pattern.MULTILINE).matcher(plan).find();
+    }
+
+    private String explain(Executed statement) {
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), String.class,
+                statement.parameters().toArray());
+        return String.join("\n", lines);
+    }
+
+    // Spring Data sends the page and, unless the page is the last one, a count
+    private static Executed statement(List<Executed> statements, boolean count) {
+        List<Executed> matching = statements.stream()
+                .filter(statement -> statement.sql().toLowerCase(Locale.ROOT).startsWith("select count") == count)
+                .toList();
+        assertEquals(1, matching.size(), statements::toString);
+        return matching.get(0);
+    }
+
+    private static List<Executed> capture(Runnable queries) {
+        List<Executed> statements = new ArrayList<>();
+        CAPTURED.set(statements);
+        try {
+            queries.run();
+        } finally {
+            CAPTURED.remove();
+        }
+        return statements;
+    }
+
+    /**
+     * A statement as it reached the driver, with its bound parameters in order.
+     */
+    record Executed(String sql, List<Object> parameters) {
+    }
+
+    /**
+     * Wraps the primary DataSource, which JPA and JdbcTemplate share, so the plans asserted are
+     * those of the SQL Hibernate and the repositories actually send rather than a hand-written copy.
+     */
+    @TestConfiguration
+    static class StatementCapture {
+
+        @Bean
+        static BeanPostProcessor captureStatements() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return "dataSource".equals(beanName) ? capturing((DataSource) bean) : bean;
+                }
+            };
+        }
+
+        private static DataSource capturing(DataSource dataSource) {
+            return proxy(DataSource.class, (p, method, args) -> {
+                Object result = invoke(dataSource, method, args);
+                return result instanceof Connection connection ? capturing(connection) : result;
+            });
+        }
+
+        private static Connection capturing(Connection connection) {
+            return proxy(Connection.class, (p, method, args) -> {
+                Object result = invoke(connection, method, args);
+                return method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement
+                        ? capturing(statement, (String) args[0]) : result;
+            });
+        }
+
+        private static PreparedStatement capturing(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(PreparedStatement.class, (p, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    parameters.put(index, name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.startsWith("execute") && CAPTURED.get() != null) {
+                    CAPTURED.get().add(new Executed(sql, new ArrayList<>(parameters.values())));
+                }
+                return invoke(statement, method, args);
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.dto.ProgressDTO;
+import com.kidula.studentdataprocessor.entity.Student;
+import com.kidula.studentdataprocessor.repository.StudentRepository;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports the table as a columnar file and uploads it again on H2: without a requested chain the
+ * rows must come back unchanged, not with transform.upload applied on every round trip.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class ColumnarUploadRoundTripTest {
+
+    private static final int ROWS = 3000;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private ParallelExportEngine parallelExportEngine;
+
+    @Autowired
+    private DataUploadService dataUploadService;
+
+    @Autowired
+    private ProgressTracker progressTracker;
+
+    @Autowired
+    private TransformCompiler transformCompiler;
+
+    private static Path storage;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        storage = Files.createTempDirectory("columnar-round-trip");
+        registry.add("file.storage.path", () -> storage.toString() + "/");
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:columnar-round-trip;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        registry.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.H2Dialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create");
+    }
+
+    @BeforeEach
+    void load() {
+        studentRepository.deleteAllInBatch();
+        List<Student> students = new ArrayList<>();
+        for (int i = 1; i <= ROWS; i++) {
+            students.add(new Student((long) i * 7, "First" + i, "Last" + i, LocalDate.of(2000, 1, 1).plusDays(i),
+                    "Class" + (i % 5 + 1), 55 + i % 21));
+        }
+        studentRepository.saveAll(students);
+    }
+
+    @Test
+    void defaultUploadKeepsScores() throws Exception {
+        List<Student> before = students();
+
+        upload(export(), null);
+
+        assertEquals(rows(before), rows(students()));
+    }
+
+    @Test
+    void requestedChainStillApplies() throws Exception {
+        List<Student> before = students();
+
+        upload(export(), "score = score + 5");
+
+        List<String> expected = new ArrayList<>();
+        for (Student student : before) {
+            student.setScore(student.getScore() + 5);
+            expected.add(row(student));
+        }
+        assertEquals(expected, rows(students()));
+    }
+
+    private Path export() throws IOException {
+        Path file = storage.resolve(UUID.randomUUID() + ".stc");
+        try (OutputStream out = new FileOutputStream(file.toFile())) {
+            String taskId = UUID.randomUUID().toString();
+            parallelExportEngine.writeColumnar(out, taskId, new CancellationToken(taskId), ROWS,
+                    System.currentTimeMillis());
+        }
+        return file;
+    }
+
+    private void upload(Path file, String transforms) throws InterruptedException {
+        String taskId = UUID.randomUUID().toString();
+        dataUploadService.uploadColumnarToDatabase(taskId, file.toString(), null,
+                transforms == null ? null : transformCompiler.compile(transforms));
+
+        long deadline = System.currentTimeMillis() + 30000;
+        ProgressDTO progress;
+        // NOT_FOUND until the async job reports its first progress
+        while (Set.of("NOT_FOUND", "RUNNING").contains((progress = progressTracker.getProgress(taskId)).getStatus())) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Upload " + taskId + " did not finish");
+            }
+            Thread.sleep(50);
+        }
+        assertEquals("COMPLETED", progress.getStatus(), progress.getError());
+    }
+
+    private List<Student> students() {
+        return studentRepository.findAll(Sort.by("studentId"));
+    }
+
+    private static List<String> rows(List<Student> students) {
+        return students.stream().map(ColumnarUploadRoundTripTest::row).toList();
+    }
+
+    // Everything but the surrogate id, which a reload assigns anew
+    private static String row(Student student) {
+        return student.getStudentId() + "," + student.getFirstName() + "," + student.getLastName() + ","
+                + student.getDob() + "," + student.getStudentClass() + "," + student.getScore();
+    }
+}
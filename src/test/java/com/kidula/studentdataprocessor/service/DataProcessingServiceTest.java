@@ -0,0 +1,104 @@
+package com.kidula.studentdataprocessor.service;
+
+import com.kidula.studentdataprocessor.transform.TransformChain;
+import com.kidula.studentdataprocessor.transform.TransformCompiler;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Converts small workbooks with chains that read studentId: ids must be parsed exactly, and a cell
+ * that is not a whole number fails the conversion instead of becoming 0.
+ */
+class DataProcessingServiceTest {
+
+    private static final String[] HEADER = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
+
+    private final DataProcessingService service = new DataProcessingService();
+    private final TransformCompiler compiler = new TransformCompiler();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void filtersOnExactIdsAbove2To53() throws Exception {
+        File workbook = workbook(new Object[][]{
+                {"9007199254740993", "Ada", "Lovelace", "2000-01-01", "Class1", 60.0},
+                {"9007199254740992", "Alan", "Turing", "2000-01-01", "Class2", 70.0},
+                {1500.0, "Grace", "Hopper", "2000-01-01", "Class3", 80.0},
+        });
+
+        String csv = convert(workbook, compiler.compile("filter studentId == 9007199254740993 or studentId == 1500"));
+
+        assertEquals(String.join(",", HEADER) + "\n"
+                + "9007199254740993,Ada,Lovelace,2000-01-01,Class1,60\n"
+                + "1500,Grace,Hopper,2000-01-01,Class3,80\n", csv.replace("\r\n", "\n"));
+    }
+
+    @Test
+    void badIdFailsWithItsRow() throws Exception {
+        TransformChain chain = compiler.compile("filter studentId > 1000");
+        for (Object id : new Object[]{"", "abc", "12.5", "99999999999999999999"}) {
+            File workbook = workbook(new Object[][]{
+                    {2000.0, "Ada", "Lovelace", "2000-01-01", "Class1", 60.0},
+                    {id, "Alan", "Turing", "2000-01-01", "Class2", 70.0},
+            });
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> convert(workbook, chain));
+            assertEquals("Row 3: studentId '" + id + "' is not a whole number", e.getMessage());
+        }
+    }
+
+    @Test
+    void idIsNotParsedWhenTheChainIgnoresIt() throws Exception {
+        File workbook = workbook(new Object[][]{
+                {"abc", "Ada", "Lovelace", "2000-01-01", "Class1", 60.0},
+        });
+
+        String csv = convert(workbook, compiler.compile("score = score + 10"));
+
+        assertEquals(String.join(",", HEADER) + "\nabc,Ada,Lovelace,2000-01-01,Class1,70\n", csv.replace("\r\n", "\n"));
+    }
+
+    private String convert(File workbook, TransformChain chain) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.convertToCsv(workbook, out, chain, rowNum -> {
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Strings become string cells and doubles numeric cells, as in a workbook edited by hand
+    private File workbook(Object[][] rows) throws IOException {
+        File file = File.createTempFile("students", ".xlsx", directory.toFile());
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Students");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r + 1);
+                for (int i = 0; i < rows[r].length; i++) {
+                    if (rows[r][i] instanceof Double number) {
+                        row.createCell(i).setCellValue(number);
+                    } else {
+                        row.createCell(i).setCellValue((String) rows[r][i]);
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,120 @@
+package com.kidula.studentdataprocessor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compresses data around the 1MB block size and decodes it with GZIPInputStream, which only
+ * succeeds if every block's preset dictionary matches the previous block.
+ */
+class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK = 1 << 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void emptyStreamIsAValidGzip() throws IOException {
+        assertArrayEquals(new byte[0], gunzip(gzip(new byte[0], Deflater.DEFAULT_COMPRESSION, BLOCK)));
+    }
+
+    @Test
+    void lengthsAroundBlockBoundariesRoundTrip() throws IOException {
+        Random random = new Random(7);
+        for (int length : new int[]{1, BLOCK - 1, BLOCK, BLOCK + 1, 2 * BLOCK, 3 * BLOCK + 12345}) {
+            byte[] data = text(random, length);
+            assertArrayEquals(data, gunzip(gzip(data, Deflater.BEST_SPEED, 8191)), "length " + length);
+        }
+    }
+
+    @Test
+    void singleByteAndBulkWritesMix() throws IOException {
+        byte[] data = text(new Random(11), 2 * BLOCK + 100);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, executor)) {
+            int[] sizes = {1, 7, 300000, 1, 65536, 3};
+            int position = 0;
+            for (int i = 0; position < data.length; i++) {
+                int n = Math.min(sizes[i % sizes.length], data.length - position);
+                if (n == 1) {
+                    gzip.write(data[position]);
+                } else {
+                    gzip.write(data, position, n);
+                }
+                position += n;
+            }
+        }
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    void blocksReferenceThePreviousBlockThroughTheDictionary() throws IOException {
+        // A random 16KB pattern repeated over three blocks: without the preset dictionary the second
+        // and third block would each start with the pattern as 16KB of literals
+        byte[] pattern = new byte[16 * 1024];
+        new Random(3).nextBytes(pattern);
+        byte[] data = new byte[3 * BLOCK];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = pattern[i % pattern.length];
+        }
+
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(serial)) {
+            gzip.write(data);
+        }
+
+        byte[] compressed = gzip(data, Deflater.DEFAULT_COMPRESSION, 1 << 16);
+        assertArrayEquals(data, gunzip(compressed));
+        assertTrue(compressed.length < serial.size() + pattern.length,
+                "compressed to " + compressed.length + " bytes, GZIPOutputStream " + serial.size());
+    }
+
+    private byte[] gzip(byte[] data, int level, int writeSize) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, level, executor)) {
+            for (int offset = 0; offset < data.length; offset += writeSize) {
+                gzip.write(data, offset, Math.min(writeSize, data.length - offset));
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // CSV-like rows, compressible but not trivially so
+    private static byte[] text(Random random, int length) {
+        byte[] data = new byte[length];
+        String[] words = {"Student", "Class1", "Class2", "2001-04-17", "Lovelace", "Turing", ",", "\n"};
+        int position = 0;
+        while (position < length) {
+            byte[] word = (random.nextInt(10) == 0 ? Integer.toString(random.nextInt(1000000))
+                    : words[random.nextInt(words.length)]).getBytes();
+            int n = Math.min(word.length, length - position);
+            System.arraycopy(word, 0, data, position, n);
+            position += n;
+        }
+        return data;
+    }
+}
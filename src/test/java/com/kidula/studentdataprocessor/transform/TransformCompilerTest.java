@@ -0,0 +1,167 @@
+package com.kidula.studentdataprocessor.transform;
+
+import com.kidula.studentdataprocessor.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles chains and runs them on single rows: the default chains of application.properties,
+ * operator precedence, functions, class mapping, filters and the error positions of bad sources.
+ */
+class TransformCompilerTest {
+
+    private final TransformCompiler compiler = new TransformCompiler();
+
+    @Test
+    void defaultGenerateChainDrawsFromTheRowRandom() {
+        TransformChain chain = compiler.compile("score = random(55, 75)");
+        TransformRow row = new TransformRow(new Random(42));
+        Random expected = new Random(42);
+
+        boolean sawLow = false;
+        boolean sawHigh = false;
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(chain.apply(row.set(i, "Class1", 0)));
+            assertEquals(55 + expected.nextInt(21), row.getScore());
+            sawLow |= row.getScore() == 55;
+            sawHigh |= row.getScore() == 75;
+        }
+        assertTrue(sawLow && sawHigh);
+    }
+
+    @Test
+    void defaultProcessAndUploadChainsAddToTheScore() {
+        TransformChain process = compiler.compile("score = score + 10");
+        TransformChain upload = compiler.compile("score = score + 5");
+
+        assertEquals(70, run(process, 60));
+        assertEquals(65, run(upload, 60));
+        assertEquals(-5, run(upload, -10));
+        // The result saturates instead of wrapping
+        assertEquals(Integer.MAX_VALUE, run(process, Integer.MAX_VALUE - 3));
+        assertFalse(upload.readsStudentId());
+    }
+
+    @Test
+    void arithmeticFollowsPrecedence() {
+        assertEquals(2 + 3 * 7 - (7 - 1) % 4, run(compiler.compile("score = 2 + 3 * score - (score - 1) % 4"), 7));
+        assertEquals(-3, run(compiler.compile("score = -score"), 3));
+        assertEquals(3, run(compiler.compile("score = - -score"), 3));
+        assertEquals(4, run(compiler.compile("score = (score + 1) / 2"), 7));
+        assertEquals(Integer.MIN_VALUE, run(compiler.compile("score = score * 1000000 * 1000000"), -5));
+    }
+
+    @Test
+    void functions() {
+        assertEquals(100, run(compiler.compile("score = clamp(score + 5, 0, 100)"), 99));
+        assertEquals(0, run(compiler.compile("score = clamp(score, 0, 100)"), -20));
+        assertEquals(10, run(compiler.compile("score = max(score, 10)"), 3));
+        assertEquals(3, run(compiler.compile("score = min(score, 10)"), 3));
+        assertEquals(8, run(compiler.compile("score = abs(score - 10)"), 2));
+        assertEquals(7, run(compiler.compile("score = min(3, 4) + max(2, abs(-4))"), 0));
+    }
+
+    @Test
+    void studentIdIsReadOnlyWhenUsed() {
+        TransformChain chain = compiler.compile("score = studentId % 100");
+        assertTrue(chain.readsStudentId());
+        TransformRow row = new TransformRow().set(12345, "Class1", 0);
+        chain.apply(row);
+        assertEquals(45, row.getScore());
+    }
+
+    @Test
+    void runtimeDivisionByZeroKeepsTheValue() {
+        assertEquals(9, run(compiler.compile("score = score / (score - 9)"), 9));
+        assertEquals(9, run(compiler.compile("score = score % (score - 9)"), 9));
+    }
+
+    @Test
+    void classAssignmentAndMapping() {
+        TransformRow row = new TransformRow().set(1, "Class1", 50);
+        compiler.compile("class = map('Class1': 'A', 'Class2': 'B')").apply(row);
+        assertEquals("A", row.getStudentClass());
+
+        row.set(1, "Class9", 50);
+        compiler.compile("class = map('Class1': 'A')").apply(row);
+        assertEquals("Class9", row.getStudentClass());
+
+        compiler.compile("studentClass = 'O''Neil'").apply(row);
+        assertEquals("O'Neil", row.getStudentClass());
+    }
+
+    @Test
+    void filtersDropRows() {
+        TransformChain chain = compiler.compile("filter score >= 60 and not (class == 'Class2' or score > 90)");
+        assertTrue(chain.apply(new TransformRow().set(1, "Class1", 60)));
+        assertFalse(chain.apply(new TransformRow().set(1, "Class1", 59)));
+        assertFalse(chain.apply(new TransformRow().set(1, "Class2", 70)));
+        assertFalse(chain.apply(new TransformRow().set(1, "Class1", 95)));
+
+        TransformChain in = compiler.compile("filter class in ('A', 'B') and (score + 1) * 2 > 10");
+        assertTrue(in.apply(new TransformRow().set(1, "B", 5)));
+        assertFalse(in.apply(new TransformRow().set(1, "B", 4)));
+        assertFalse(in.apply(new TransformRow().set(1, null, 50)));
+
+        assertFalse(compiler.compile("filter 1 > 2").apply(new TransformRow().set(1, "A", 0)));
+        assertTrue(compiler.compile("filter class != 'A'").apply(new TransformRow().set(1, null, 0)));
+    }
+
+    @Test
+    void stepsRunInOrderAndStopAtAFilter() {
+        TransformChain chain = compiler.compile("score = score + 5; filter score >= 60; class = 'Pass';");
+        Student kept = new Student(1L, "Ada", "Lovelace", LocalDate.of(2000, 1, 1), "Class1", 55);
+        Student dropped = new Student(2L, "Alan", "Turing", LocalDate.of(2000, 1, 1), "Class1", 54);
+
+        assertTrue(chain.apply(kept, new TransformRow()));
+        assertEquals(60, kept.getScore());
+        assertEquals("Pass", kept.getStudentClass());
+        assertFalse(chain.apply(dropped, new TransformRow()));
+        assertEquals(54, dropped.getScore());
+        assertEquals("Class1", dropped.getStudentClass());
+    }
+
+    @Test
+    void blankSourceIsTheIdentityAndChainsAreCached() {
+        assertEquals(42, run(compiler.compile(null), 42));
+        assertEquals(42, run(compiler.compile("  ;; "), 42));
+        assertSame(compiler.compile("score = score + 5"), compiler.compile("  score = score + 5 "));
+    }
+
+    @Test
+    void errorsNameThePosition() {
+        assertError("foo = 1", 0, "expected 'score =', 'class =' or 'filter'");
+        assertError("score 1", 6, "expected '='");
+        assertError("score =", 7, "unexpected end");
+        assertError("score = score + x", 16, "expected a number, score, studentId or function");
+        assertError("score = 5 # 2", 10, "unexpected '#'");
+        assertError("class = 'A", 8, "unterminated string");
+        assertError("class = A", 8, "expected a quoted string");
+        assertError("score = 1 score = 2", 10, "expected ';'");
+        assertError("score = score / 0", 17, "division by zero");
+        assertError("score = clamp(score, 10, 0)", 27, "clamp lower bound is above the upper bound");
+        assertError("score = clamp(score, score, 10)", 31, "clamp bounds must be constants");
+        assertError("score = random(75, 55)", 22, "random needs lo <= hi within the int range");
+        assertError("filter score", 12, "unexpected end");
+        assertError("filter score + 1", 16, "unexpected end");
+    }
+
+    private void assertError(String source, int position, String message) {
+        InvalidTransformException e = assertThrows(InvalidTransformException.class, () -> compiler.compile(source));
+        assertEquals("Invalid transform at position " + position + ": " + message, e.getMessage());
+    }
+
+    private static int run(TransformChain chain, int score) {
+        TransformRow row = new TransformRow().set(1, "Class1", score);
+        assertTrue(chain.apply(row));
+        return row.getScore();
+    }
+}